@@ -0,0 +1,446 @@
+package ru.keich.mon.servicemanager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hazelcast.config.ClasspathYamlConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.search.Search;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * End to end load test. Builds a service tree of depth levels with
+ * fanout children per item, leaves match events by the node field,
+ * then sends events at the given rate and mix of new, repeated,
+ * status changed and deleted events. A probe leaf at full depth is
+ * raised to CRITICAL and cleared again in a loop, the time until
+ * the root follows is the propagation latency.
+ *
+ * java -cp target/benchmarks.jar ru.keich.mon.servicemanager.LoadGenerator
+ *     --members=3 --depth=3 --fanout=10 --rate=2000 --seconds=60 --batch=100
+ *     --mix=40,40,15,5 [--url=http://host:8080,...]
+ *
+ * Without url the members are started in this JVM, every member
+ * with its own Hazelcast instance and web server.
+ */
+public class LoadGenerator {
+
+	static final String ROOT_ID = "load-root";
+	static final String PROBE_NODE = "load-probe";
+	static final String PROBE_EVENT = "load-probe-event";
+	static final String SOURCE = "load";
+	static final String NODE_PREFIX = "load-node-";
+	static final int ITEMS_BATCH = 1000;
+	static final long TICK_MILLIS = 10;
+	static final long PROBE_TIMEOUT_SECONDS = 60;
+	static final List<String> LOAD_STATUSES = List.of("INFORMATION", "WARNING", "MAJOR");
+
+	private final int members;
+	private final int depth;
+	private final int fanout;
+	private final int rate;
+	private final int seconds;
+	private final int batch;
+	private final int[] mix;
+	private final List<String> urls = new ArrayList<String>();
+	private final List<ConfigurableApplicationContext> contexts = new ArrayList<ConfigurableApplicationContext>();
+	private final List<String> nodes = new ArrayList<String>();
+	private final List<LoadEvent> liveEvents = new ArrayList<LoadEvent>();
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+	private final Random random = new Random(42);
+
+	private final AtomicLong eventsAcked = new AtomicLong();
+	private final AtomicLong requestErrors = new AtomicLong();
+	private final ConcurrentLinkedQueue<Long> requestNanos = new ConcurrentLinkedQueue<Long>();
+	private final List<Long> raiseNanos = Collections.synchronizedList(new ArrayList<Long>());
+	private final List<Long> clearNanos = Collections.synchronizedList(new ArrayList<Long>());
+	private long eventsSent = 0;
+	private long nextEventId = 0;
+	private final AtomicInteger nextUrl = new AtomicInteger();
+
+	static class LoadEvent {
+
+		final String id;
+		final String node;
+		String status;
+
+		LoadEvent(String id, String node, String status) {
+			this.id = id;
+			this.node = node;
+			this.status = status;
+		}
+
+	}
+
+	public LoadGenerator(Map<String, String> options) {
+		members = Integer.parseInt(options.getOrDefault("members", "2"));
+		depth = Integer.parseInt(options.getOrDefault("depth", "3"));
+		fanout = Integer.parseInt(options.getOrDefault("fanout", "10"));
+		rate = Integer.parseInt(options.getOrDefault("rate", "1000"));
+		seconds = Integer.parseInt(options.getOrDefault("seconds", "30"));
+		batch = Integer.parseInt(options.getOrDefault("batch", "100"));
+		mix = Arrays.stream(options.getOrDefault("mix", "40,40,15,5").split(","))
+				.mapToInt(Integer::parseInt)
+				.toArray();
+		if (mix.length != 4) {
+			throw new IllegalArgumentException("mix must be new,repeat,status,delete");
+		}
+		Arrays.stream(options.getOrDefault("url", "").split(","))
+				.filter(url -> !url.isBlank())
+				.forEach(urls::add);
+	}
+
+	public static void main(String[] args) throws Exception {
+		var options = new HashMap<String, String>();
+		Arrays.stream(args)
+				.filter(arg -> arg.startsWith("--") && arg.contains("="))
+				.forEach(arg -> options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1)));
+		var generator = new LoadGenerator(options);
+		try {
+			generator.run();
+		} finally {
+			generator.stop();
+		}
+		System.exit(0);
+	}
+
+	public void run() throws Exception {
+		if (urls.isEmpty()) {
+			startMembers();
+		}
+		System.out.println("Members: " + urls);
+		var items = buildTree();
+		System.out.println("Tree: " + items + " items, " + nodes.size() + " leaves");
+		waitForRoot();
+		var probe = new Thread(this::probe, "load-probe");
+		probe.start();
+		sendEvents();
+		probe.interrupt();
+		probe.join();
+		report();
+	}
+
+	private void startMembers() {
+		System.setProperty("hazelcast.logging.type", "slf4j");
+		for (int i = 0; i < members; i++) {
+			var config = new ClasspathYamlConfig("hazelcast.yaml");
+			config.setClusterName("load");
+			var join = config.getNetworkConfig().getJoin();
+			join.getMulticastConfig().setEnabled(false);
+			join.getTcpIpConfig().setEnabled(true).setMembers(List.of("127.0.0.1"));
+			HazelcastInstance hazelcastInstance = Hazelcast.newHazelcastInstance(config);
+			var context = new SpringApplicationBuilder(Application.class)
+					.initializers(ctx -> ctx.getBeanFactory().registerSingleton("hazelcastInstance", hazelcastInstance))
+					.run("--server.port=0", "--logging.level.root=WARN");
+			contexts.add(context);
+			var port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+			urls.add("http://127.0.0.1:" + port);
+		}
+	}
+
+	private void stop() {
+		contexts.forEach(ConfigurableApplicationContext::close);
+		Hazelcast.shutdownAll();
+	}
+
+	private String nextUrl() {
+		return urls.get(Math.floorMod(nextUrl.incrementAndGet(), urls.size()));
+	}
+
+	/*
+	 * Items of a level are sent together, the first leaf carries
+	 * the probe filter.
+	 */
+	private int buildTree() throws IOException, InterruptedException {
+		var count = 0;
+		var level = List.of(ROOT_ID);
+		for (int d = 1; d <= depth; d++) {
+			var children = new ArrayList<String>();
+			var items = new ArrayList<Map<String, Object>>();
+			for (var parentId : level) {
+				var childrenIds = new ArrayList<String>();
+				for (int c = 0; c < fanout; c++) {
+					var childId = "load-" + d + "-" + children.size();
+					children.add(childId);
+					childrenIds.add(childId);
+				}
+				items.add(item(parentId, childrenIds, null));
+			}
+			postItems(items);
+			count += items.size();
+			level = children;
+		}
+		var leaves = new ArrayList<Map<String, Object>>();
+		for (var leafId : level) {
+			var node = leaves.isEmpty() ? PROBE_NODE : NODE_PREFIX + leaves.size();
+			if (!leaves.isEmpty()) {
+				nodes.add(node);
+			}
+			leaves.add(item(leafId, List.of(), node));
+		}
+		postItems(leaves);
+		return count + leaves.size();
+	}
+
+	private Map<String, Object> item(String id, List<String> childrenIds, String node) {
+		var item = new LinkedHashMap<String, Object>();
+		item.put("id", id);
+		item.put("source", SOURCE);
+		item.put("sourceKey", SOURCE);
+		item.put("name", id);
+		item.put("childrenIds", childrenIds);
+		if (Objects.nonNull(node)) {
+			item.put("filters", Map.of("by_node", Map.of("equalFields", Map.of("node", node))));
+		}
+		return item;
+	}
+
+	private void postItems(List<Map<String, Object>> items) throws IOException, InterruptedException {
+		for (int from = 0; from < items.size(); from += ITEMS_BATCH) {
+			var chunk = items.subList(from, Math.min(from + ITEMS_BATCH, items.size()));
+			var response = client.send(post(nextUrl() + "/api/v1/item", chunk), HttpResponse.BodyHandlers.ofString());
+			if (response.statusCode() != 200) {
+				throw new IllegalStateException("Items not accepted: " + response.statusCode());
+			}
+		}
+	}
+
+	private HttpRequest post(String uri, Object body) throws IOException {
+		return HttpRequest.newBuilder(URI.create(uri))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+				.build();
+	}
+
+	private HttpRequest delete(String uri, Object body) throws IOException {
+		return HttpRequest.newBuilder(URI.create(uri))
+				.header("Content-Type", "application/json")
+				.method("DELETE", HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body)))
+				.build();
+	}
+
+	private void waitForRoot() throws IOException, InterruptedException {
+		var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(PROBE_TIMEOUT_SECONDS);
+		while (Objects.isNull(rootStatus())) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("Root item not found");
+			}
+			Thread.sleep(100);
+		}
+	}
+
+	private String rootStatus() throws IOException, InterruptedException {
+		var request = HttpRequest.newBuilder(URI.create(nextUrl() + "/api/v1/item/" + ROOT_ID)).GET().build();
+		var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			return null;
+		}
+		return mapper.readTree(response.body()).path("status").asText(null);
+	}
+
+	private Map<String, Object> event(String id, String node, String status) {
+		var event = new LinkedHashMap<String, Object>();
+		event.put("id", id);
+		event.put("source", SOURCE);
+		event.put("sourceKey", SOURCE);
+		event.put("type", "PROBLEM");
+		event.put("status", status);
+		event.put("node", node);
+		event.put("fields", Map.of("node", node));
+		return event;
+	}
+
+	private int pickKind() {
+		var total = Arrays.stream(mix).sum();
+		var value = random.nextInt(total);
+		for (int kind = 0; kind < mix.length; kind++) {
+			value -= mix[kind];
+			if (value < 0) {
+				return kind;
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * Repeats, changes and deletes fall back to a new event
+	 * while there are no live events.
+	 */
+	private void nextEvent(List<Map<String, Object>> posts, List<String> deletes) {
+		var kind = liveEvents.isEmpty() ? 0 : pickKind();
+		if (kind == 0) {
+			var event = new LoadEvent("load-event-" + nextEventId++, nodes.get(random.nextInt(nodes.size())),
+					LOAD_STATUSES.get(random.nextInt(LOAD_STATUSES.size())));
+			liveEvents.add(event);
+			posts.add(event(event.id, event.node, event.status));
+			return;
+		}
+		var index = random.nextInt(liveEvents.size());
+		var event = liveEvents.get(index);
+		switch (kind) {
+		case 1:
+			posts.add(event(event.id, event.node, event.status));
+			break;
+		case 2:
+			var status = LOAD_STATUSES.get(random.nextInt(LOAD_STATUSES.size()));
+			event.status = status.equals(event.status) ? LOAD_STATUSES.get(0) : status;
+			posts.add(event(event.id, event.node, event.status));
+			break;
+		default:
+			liveEvents.set(index, liveEvents.get(liveEvents.size() - 1));
+			liveEvents.remove(liveEvents.size() - 1);
+			deletes.add(event.id);
+		}
+	}
+
+	private void sendEvents() throws IOException, InterruptedException {
+		var start = System.nanoTime();
+		var end = start + TimeUnit.SECONDS.toNanos(seconds);
+		var nextReport = start + TimeUnit.SECONDS.toNanos(5);
+		var inFlight = new ArrayList<CompletableFuture<?>>();
+		while (System.nanoTime() < end) {
+			var due = (long) ((System.nanoTime() - start) / 1e9 * rate) - eventsSent;
+			while (due > 0) {
+				var posts = new ArrayList<Map<String, Object>>();
+				var deletes = new ArrayList<String>();
+				var size = (int) Math.min(due, batch);
+				for (int i = 0; i < size; i++) {
+					nextEvent(posts, deletes);
+				}
+				if (!posts.isEmpty()) {
+					inFlight.add(send(post(nextUrl() + "/api/v1/event", posts), posts.size()));
+				}
+				if (!deletes.isEmpty()) {
+					inFlight.add(send(delete(nextUrl() + "/api/v1/event", deletes), deletes.size()));
+				}
+				eventsSent += size;
+				due -= size;
+			}
+			inFlight.removeIf(CompletableFuture::isDone);
+			if (System.nanoTime() > nextReport) {
+				var elapsed = (System.nanoTime() - start) / 1e9;
+				System.out.printf("%5.0fs sent %d acked %d (%.0f/s) in flight %d errors %d%n", elapsed, eventsSent,
+						eventsAcked.get(), eventsAcked.get() / elapsed, inFlight.size(), requestErrors.get());
+				nextReport += TimeUnit.SECONDS.toNanos(5);
+			}
+			Thread.sleep(TICK_MILLIS);
+		}
+		CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+		var elapsed = (System.nanoTime() - start) / 1e9;
+		System.out.printf("Ingest: sent %d acked %d in %.1fs, %.0f events/s, target %d events/s, errors %d%n",
+				eventsSent, eventsAcked.get(), elapsed, eventsAcked.get() / elapsed, rate, requestErrors.get());
+	}
+
+	private CompletableFuture<?> send(HttpRequest request, int events) {
+		var sent = System.nanoTime();
+		return client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) -> {
+			requestNanos.add(System.nanoTime() - sent);
+			if (Objects.isNull(e) && response.statusCode() == 200) {
+				eventsAcked.addAndGet(events);
+			} else {
+				requestErrors.incrementAndGet();
+			}
+		});
+	}
+
+	/*
+	 * The load events never reach CRITICAL, so the root is CRITICAL
+	 * only while the probe event is.
+	 */
+	private void probe() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				raiseNanos.add(probeStatus("CRITICAL", true));
+				clearNanos.add(probeStatus("CLEAR", false));
+				Thread.sleep(1000);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			System.out.println("Probe failed: " + e);
+		}
+	}
+
+	private long probeStatus(String status, boolean critical) throws IOException, InterruptedException {
+		var start = System.nanoTime();
+		client.send(post(nextUrl() + "/api/v1/event", List.of(event(PROBE_EVENT, PROBE_NODE, status))),
+				HttpResponse.BodyHandlers.discarding());
+		var deadline = start + TimeUnit.SECONDS.toNanos(PROBE_TIMEOUT_SECONDS);
+		while ("CRITICAL".equals(rootStatus()) != critical) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("Root did not follow the probe in " + PROBE_TIMEOUT_SECONDS + "s");
+			}
+			Thread.sleep(1);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static String percentiles(List<Long> nanos) {
+		if (nanos.isEmpty()) {
+			return "no samples";
+		}
+		var sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+		return String.format("n=%d p50=%.1fms p99=%.1fms max=%.1fms", sorted.length,
+				sorted[(int) (sorted.length * 0.50)] / 1e6,
+				sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / 1e6,
+				sorted[sorted.length - 1] / 1e6);
+	}
+
+	private void report() {
+		System.out.println("Ingest request latency: " + percentiles(new ArrayList<Long>(requestNanos)));
+		System.out.println("Root raise latency: " + percentiles(raiseNanos));
+		System.out.println("Root clear latency: " + percentiles(clearNanos));
+		if (!contexts.isEmpty()) {
+			Search.in(Metrics.globalRegistry).name("servicemanager.event.propagation").timers().forEach(timer -> {
+				System.out.printf("Event match latency: n=%d mean=%.1fms max=%.1fms%n", timer.count(),
+						timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS));
+			});
+			Search.in(Metrics.globalRegistry).name("servicemanager.queue.size").gauges().forEach(gauge -> {
+				System.out.printf("Queue %s backlog %.0f%n", gauge.getId().getTag("queue"), gauge.value());
+			});
+		}
+	}
+
+}
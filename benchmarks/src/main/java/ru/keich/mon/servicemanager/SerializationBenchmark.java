@@ -0,0 +1,143 @@
+package ru.keich.mon.servicemanager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hazelcast.config.ClasspathYamlConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.internal.serialization.Data;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+
+import ru.keich.mon.servicemanager.event.Event;
+import ru.keich.mon.servicemanager.item.Item;
+import ru.keich.mon.servicemanager.item.ItemFilter;
+import ru.keich.mon.servicemanager.item.ItemRule;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Item and Event through the serialization service of a member
+ * started with the application hazelcast.yaml, so the registered
+ * compact serializers are used.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+	@Param({ "5", "50" })
+	int fields;
+
+	@Param({ "0", "100" })
+	int children;
+
+	@Param({ "0", "100" })
+	int events;
+
+	HazelcastInstance hazelcastInstance;
+	SerializationService serializationService;
+	Item item;
+	Event event;
+	Data itemData;
+	Data eventData;
+
+	@Setup
+	public void setup() {
+		var config = new ClasspathYamlConfig("hazelcast.yaml");
+		config.setClusterName("benchmark");
+		config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+		hazelcastInstance = Hazelcast.newHazelcastInstance(config);
+		serializationService = ((SerializationServiceSupport) hazelcastInstance).getSerializationService();
+
+		var fieldsMap = new HashMap<String, String>();
+		for (int i = 0; i < fields; i++) {
+			fieldsMap.put("field" + i, "value" + i);
+		}
+		item = new Item("item", "benchmark", "benchmark");
+		item.setCreatedOn(LocalDateTime.now());
+		item.setUpdatedOn(LocalDateTime.now());
+		item.setFields(fieldsMap);
+		var rule = new ItemRule();
+		rule.setType(ItemRule.RuleType.CLUSTER);
+		item.setRules(Map.of("rule", rule));
+		var filter = new ItemFilter();
+		filter.setEqualFields(Map.of("node", "node"));
+		item.setFilters(Map.of("filter", filter));
+		var childrenIds = new String[children];
+		for (int i = 0; i < children; i++) {
+			childrenIds[i] = "child" + i;
+			item.getChildStatus().put(childrenIds[i], BaseStatus.fromInteger(i % BaseStatus.length));
+			item.getChildStatusVersion().put(childrenIds[i], (long) i);
+		}
+		item.setChildrenIds(childrenIds);
+		for (int i = 0; i < events; i++) {
+			item.getEventsStatus().put("event" + i, BaseStatus.fromInteger(i % BaseStatus.length));
+		}
+		event = new Event("event", "benchmark", "benchmark", Event.EventType.PROBLEM, BaseStatus.MAJOR);
+		event.setFields(fieldsMap);
+		event.setNode("node");
+		event.setSummary("summary");
+		itemData = serializationService.toData(item);
+		eventData = serializationService.toData(event);
+	}
+
+	@TearDown
+	public void tearDown() {
+		hazelcastInstance.shutdown();
+	}
+
+	@Benchmark
+	public Data itemToData() {
+		return serializationService.toData(item);
+	}
+
+	@Benchmark
+	public Item itemToObject() {
+		return serializationService.toObject(itemData);
+	}
+
+	@Benchmark
+	public Data eventToData() {
+		return serializationService.toData(event);
+	}
+
+	@Benchmark
+	public Event eventToObject() {
+		return serializationService.toObject(eventData);
+	}
+
+}
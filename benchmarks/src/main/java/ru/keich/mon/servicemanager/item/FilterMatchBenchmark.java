@@ -0,0 +1,104 @@
+package ru.keich.mon.servicemanager.item;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Matching of event fields against the item filters, the index
+ * behind findFiltersByEqualFields. Every filter has the node of its
+ * item, the other fields take a few values common to all items, as
+ * class or severity fields do. Half of the events come from a known
+ * node.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterMatchBenchmark {
+
+	@Param({ "1000", "100000" })
+	int items;
+
+	@Param({ "1", "4" })
+	int filtersPerItem;
+
+	@Param({ "1", "3" })
+	int fieldsPerFilter;
+
+	@Param({ "5", "20" })
+	int eventFields;
+
+	ItemFilterIndex index;
+	Map<String, String>[] events;
+	int next = 0;
+
+	@SuppressWarnings("unchecked")
+	@Setup
+	public void setup() {
+		var random = new Random(42);
+		index = new ItemFilterIndex();
+		for (int i = 0; i < items; i++) {
+			var filters = new LinkedHashMap<String, ItemFilter>();
+			for (int f = 0; f < filtersPerItem; f++) {
+				var equalFields = new HashMap<String, String>();
+				equalFields.put("node", "node" + i);
+				for (int k = 1; k < fieldsPerFilter; k++) {
+					equalFields.put("field" + k, "value" + f);
+				}
+				var filter = new ItemFilter();
+				filter.setEqualFields(equalFields);
+				filters.put("filter" + f, filter);
+			}
+			index.put("item" + i, filters);
+		}
+		events = new Map[1024];
+		for (int e = 0; e < events.length; e++) {
+			var fields = new HashMap<String, String>();
+			fields.put("node", "node" + random.nextInt(items * 2));
+			for (int k = 1; k < eventFields; k++) {
+				fields.put("field" + k, "value" + random.nextInt(filtersPerItem));
+			}
+			events[e] = fields;
+		}
+	}
+
+	@Benchmark
+	public Map<String, ItemFilter> match() {
+		next = (next + 1) & (events.length - 1);
+		return index.match(events[next]);
+	}
+
+}
@@ -0,0 +1,98 @@
+package ru.keich.mon.servicemanager.item;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Status of a parent by its children statuses, for the fan-out of
+ * the parent and the rule type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatusCalculationBenchmark {
+
+	@Param({ "10", "100", "10000" })
+	int children;
+
+	@Param({ "DEFAULT", "CLUSTER" })
+	ItemRule.RuleType ruleType;
+
+	Item item;
+	ItemRule rule;
+	int next = 0;
+
+	@Setup
+	public void setup() {
+		item = new Item("parent", "benchmark", "benchmark");
+		var childrenIds = new String[children];
+		for (int i = 0; i < children; i++) {
+			childrenIds[i] = "child" + i;
+			item.getChildStatus().put(childrenIds[i], BaseStatus.fromInteger(i % BaseStatus.length));
+		}
+		item.setChildrenIds(childrenIds);
+		rule = new ItemRule();
+		rule.setType(ruleType);
+		rule.setStatusThreshold(BaseStatus.WARNING);
+		rule.setValueThreshold(50);
+		item.setRules(Map.of("rule", rule));
+	}
+
+	@Benchmark
+	public int calculateStatusByChild() {
+		return ItemService.calculateStatusByChild(item);
+	}
+
+	@Benchmark
+	public int calculateEntityStatusAsCluster() {
+		return ItemService.calculateEntityStatusAsCluster(item, rule);
+	}
+
+	/*
+	 * A child status change followed by the recalculation, as done
+	 * by the status processors on the parent.
+	 */
+	@Benchmark
+	public BaseStatus childChanged() {
+		next = next + 1 == children ? 0 : next + 1;
+		var childId = item.getChildrenIds()[next];
+		var old = item.getChildStatus().get(childId);
+		item.getChildStatus().put(childId, old == BaseStatus.CRITICAL ? BaseStatus.CLEAR : BaseStatus.CRITICAL);
+		ItemService.calculateStatus(item);
+		return item.getStatus();
+	}
+
+}
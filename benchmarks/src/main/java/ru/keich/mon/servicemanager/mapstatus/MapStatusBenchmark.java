@@ -0,0 +1,96 @@
+package ru.keich.mon.servicemanager.mapstatus;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Status changes of one entry in a map of the given size. Every
+ * change moves the entry between two statuses, half of them
+ * through the current max status.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MapStatusBenchmark {
+
+	@Param({ "10", "1000", "100000" })
+	int size;
+
+	MapStatus mapStatus;
+	String[] keys;
+	int next = 0;
+
+	@Setup
+	public void setup() {
+		mapStatus = new MapStatus();
+		keys = new String[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = "event" + i;
+			mapStatus.put(keys[i], BaseStatus.fromInteger(i % BaseStatus.length));
+		}
+	}
+
+	private String nextKey() {
+		next = next + 1 == size ? 0 : next + 1;
+		return keys[next];
+	}
+
+	@Benchmark
+	public BaseStatus put() {
+		var key = nextKey();
+		var old = mapStatus.get(key);
+		mapStatus.put(key, old == BaseStatus.CRITICAL ? BaseStatus.WARNING : BaseStatus.CRITICAL);
+		return mapStatus.getMaxStatus();
+	}
+
+	@Benchmark
+	public BaseStatus removeAndPut() {
+		var key = nextKey();
+		var old = mapStatus.remove(key);
+		mapStatus.put(key, old);
+		return mapStatus.getMaxStatus();
+	}
+
+	@Benchmark
+	public BaseStatus getMaxStatus() {
+		return mapStatus.getMaxStatus();
+	}
+
+	@Benchmark
+	public int countAtLeast() {
+		return mapStatus.countAtLeast(BaseStatus.MAJOR);
+	}
+
+}
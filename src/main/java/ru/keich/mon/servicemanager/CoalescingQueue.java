@@ -0,0 +1,248 @@
+package ru.keich.mon.servicemanager;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import com.hazelcast.collection.IQueue;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A queue with a keyed map of pending elements. An element whose key
+ * is already pending only replaces the pending value and is not queued
+ * again. The reader removes the keys before processing and gets the
+ * latest value, so changes made during processing are queued anew.
+ * Comparable elements never replace a pending element that is greater.
+ * Producers and the reader must agree on the coalesce flag.
+ *
+ * The pending map and the queue are not updated atomically, a member
+ * may die between the two. A key pending for longer than pendingTtl
+ * is taken as lost and its element is queued again, a duplicate only
+ * costs one more processing.
+ */
+public class CoalescingQueue<K> {
+
+	public static final String PENDING_SUFFIX = "Pending";
+	public static final long DEFAULT_PENDING_TTL_MILLIS = 60000;
+
+	private final IQueue<K> queue;
+	private final IMap<String, Pending<K>> pending;
+	private final boolean coalesce;
+	private final Function<K, String> keyMapper;
+	private final long pendingTtlMillis;
+
+	public CoalescingQueue(HazelcastInstance hazelcastInstance, String name, boolean coalesce,
+			Function<K, String> keyMapper) {
+		this(hazelcastInstance, name, coalesce, keyMapper, DEFAULT_PENDING_TTL_MILLIS);
+	}
+
+	public CoalescingQueue(HazelcastInstance hazelcastInstance, String name, boolean coalesce,
+			Function<K, String> keyMapper, long pendingTtlMillis) {
+		super();
+		this.queue = hazelcastInstance.getQueue(name);
+		this.pending = hazelcastInstance.getMap(name + PENDING_SUFFIX);
+		this.coalesce = coalesce;
+		this.keyMapper = keyMapper;
+		this.pendingTtlMillis = pendingTtlMillis;
+	}
+
+	public IQueue<K> getQueue() {
+		return queue;
+	}
+
+	public void add(K value) {
+		if (!coalesce || pending.executeOnKey(keyMapper.apply(value), newPut(value, false))) {
+			queue.add(value);
+		}
+	}
+
+	public void addAll(Collection<K> values) {
+		addAll(values, false);
+	}
+
+	/*
+	 * Queues the elements even when their keys are pending, for the
+	 * callers repairing what may have been lost.
+	 */
+	public void requeueAll(Collection<K> values) {
+		addAll(values, true);
+	}
+
+	private void addAll(Collection<K> values, boolean force) {
+		if (values.isEmpty()) {
+			return;
+		}
+		if (!coalesce) {
+			queue.addAll(values);
+			return;
+		}
+		var fresh = latestByKey(values).entrySet()
+				.stream()
+				.map(e -> pending.submitToKey(e.getKey(), newPut(e.getValue(), force))
+						.toCompletableFuture()
+						.thenApply(added -> added ? e.getValue() : null))
+				.toList()
+				.stream()
+				.map(CompletableFuture::join)
+				.filter(Objects::nonNull)
+				.toList();
+		if (!fresh.isEmpty()) {
+			queue.addAll(fresh);
+		}
+	}
+
+	public List<K> take(List<K> polled) {
+		if (!coalesce) {
+			return polled;
+		}
+		var byKey = latestByKey(polled);
+		Map<String, K> latest = pending.executeOnKeys(byKey.keySet(), new PendingRemove<K>());
+		return byKey.entrySet()
+				.stream()
+				.map(e -> Optional.ofNullable(latest.get(e.getKey())).orElse(e.getValue()))
+				.toList();
+	}
+
+	private PendingPut<K> newPut(K value, boolean force) {
+		return new PendingPut<K>(value, System.currentTimeMillis(), force ? 0 : pendingTtlMillis);
+	}
+
+	private Map<String, K> latestByKey(Collection<K> values) {
+		return values.stream()
+				.collect(Collectors.toMap(keyMapper, Function.identity(), CoalescingQueue::newer, LinkedHashMap::new));
+	}
+
+	@SuppressWarnings("unchecked")
+	static <K> K newer(K old, K value) {
+		if (old instanceof Comparable && ((Comparable<K>) old).compareTo(value) > 0) {
+			return old;
+		}
+		return value;
+	}
+
+	/*
+	 * A pending element with the time it was queued.
+	 */
+	static class Pending<K> implements DataSerializable {
+
+		private K value;
+		private long queuedOn;
+
+		public Pending() {
+			super();
+		}
+
+		public Pending(K value, long queuedOn) {
+			super();
+			this.value = value;
+			this.queuedOn = queuedOn;
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeObject(value);
+			out.writeLong(queuedOn);
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			value = in.readObject();
+			queuedOn = in.readLong();
+		}
+
+	}
+
+	/*
+	 * Returns true when the element is to be queued: the key is not
+	 * pending, or it was queued more than ttl ago. The queue time of a
+	 * replaced element is kept, so a lost key is not hidden by updates.
+	 */
+	static class PendingPut<K> implements EntryProcessor<String, Pending<K>, Boolean>, DataSerializable {
+
+		private K value;
+		private long now;
+		private long ttl;
+
+		public PendingPut() {
+			super();
+		}
+
+		public PendingPut(K value, long now, long ttl) {
+			super();
+			this.value = value;
+			this.now = now;
+			this.ttl = ttl;
+		}
+
+		@Override
+		public Boolean process(Map.Entry<String, Pending<K>> entry) {
+			var old = entry.getValue();
+			if (Objects.isNull(old) || now - old.queuedOn >= ttl) {
+				entry.setValue(new Pending<K>(Objects.isNull(old) ? value : newer(old.value, value), now));
+				return true;
+			}
+			entry.setValue(new Pending<K>(newer(old.value, value), old.queuedOn));
+			return false;
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeObject(value);
+			out.writeLong(now);
+			out.writeLong(ttl);
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			value = in.readObject();
+			now = in.readLong();
+			ttl = in.readLong();
+		}
+
+	}
+
+	static class PendingRemove<K> implements EntryProcessor<String, Pending<K>, K> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public K process(Map.Entry<String, Pending<K>> entry) {
+			var pending = entry.getValue();
+			if (Objects.isNull(pending)) {
+				return null;
+			}
+			entry.setValue(null);
+			return pending.value;
+		}
+
+	}
+
+}
@@ -0,0 +1,128 @@
+package ru.keich.mon.servicemanager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+import com.hazelcast.nio.serialization.FieldKind;
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Helpers shared by the compact serializers. A field missing from the
+ * schema of a record written by an older version reads as the default,
+ * so fields can be added without breaking stored data. Timestamps are
+ * epoch millis in UTC, maps are written as parallel key/value arrays.
+ */
+public class CompactFields {
+
+	public static final String KEYS = "Keys";
+	public static final String VALUES = "Values";
+
+	private CompactFields() {
+	}
+
+	public static boolean has(CompactReader reader, String name) {
+		return reader.getFieldKind(name) != FieldKind.NOT_AVAILABLE;
+	}
+
+	public static String readString(CompactReader reader, String name, String defaultValue) {
+		return has(reader, name) ? reader.readString(name) : defaultValue;
+	}
+
+	public static int readInt32(CompactReader reader, String name, int defaultValue) {
+		return has(reader, name) ? reader.readInt32(name) : defaultValue;
+	}
+
+	public static long readInt64(CompactReader reader, String name, long defaultValue) {
+		return has(reader, name) ? reader.readInt64(name) : defaultValue;
+	}
+
+	public static boolean readBoolean(CompactReader reader, String name, boolean defaultValue) {
+		return has(reader, name) ? reader.readBoolean(name) : defaultValue;
+	}
+
+	public static String[] readStringArray(CompactReader reader, String name) {
+		return Objects.requireNonNullElse(has(reader, name) ? reader.readArrayOfString(name) : null, new String[0]);
+	}
+
+	public static void writeTimestamp(CompactWriter writer, String name, LocalDateTime value) {
+		writer.writeNullableInt64(name, Objects.isNull(value) ? null : value.toInstant(ZoneOffset.UTC).toEpochMilli());
+	}
+
+	public static LocalDateTime readTimestamp(CompactReader reader, String name, LocalDateTime defaultValue) {
+		if (!has(reader, name)) {
+			return defaultValue;
+		}
+		var value = reader.readNullableInt64(name);
+		return Objects.isNull(value) ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(value), ZoneOffset.UTC);
+	}
+
+	public static void writeStringMap(CompactWriter writer, String name, Map<String, String> map) {
+		map = Objects.requireNonNullElse(map, Collections.emptyMap());
+		writer.writeArrayOfString(name + KEYS, map.keySet().toArray(String[]::new));
+		writer.writeArrayOfString(name + VALUES, map.values().toArray(String[]::new));
+	}
+
+	public static Map<String, String> readStringMap(CompactReader reader, String name) {
+		if (!has(reader, name + KEYS)) {
+			return Collections.emptyMap();
+		}
+		return toMap(reader.readArrayOfString(name + KEYS), reader.readArrayOfString(name + VALUES));
+	}
+
+	public static <T> void writeCompactMap(CompactWriter writer, String name, Map<String, T> map,
+			IntFunction<T[]> generator) {
+		map = Objects.requireNonNullElse(map, Collections.emptyMap());
+		writer.writeArrayOfString(name + KEYS, map.keySet().toArray(String[]::new));
+		writer.writeArrayOfCompact(name + VALUES, map.values().toArray(generator));
+	}
+
+	public static <T> Map<String, T> readCompactMap(CompactReader reader, String name, Class<T> type) {
+		if (!has(reader, name + KEYS)) {
+			return Collections.emptyMap();
+		}
+		return toMap(reader.readArrayOfString(name + KEYS), reader.readArrayOfCompact(name + VALUES, type));
+	}
+
+	public static <E extends Enum<E>> E toEnum(E[] values, int ordinal, E defaultValue) {
+		return ordinal >= 0 && ordinal < values.length ? values[ordinal] : defaultValue;
+	}
+
+	public static <E extends Enum<E>> int ordinal(E value) {
+		return Objects.isNull(value) ? -1 : value.ordinal();
+	}
+
+	public static <V> Map<String, V> toMap(String[] keys, V[] values) {
+		var out = new LinkedHashMap<String, V>();
+		if (Objects.isNull(keys) || Objects.isNull(values)) {
+			return out;
+		}
+		for (int i = 0; i < keys.length && i < values.length; i++) {
+			out.put(keys[i], values[i]);
+		}
+		return out;
+	}
+
+}
@@ -1,11 +1,21 @@
 package ru.keich.mon.servicemanager;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import com.hazelcast.collection.IQueue;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 import lombok.extern.java.Log;
 
@@ -29,39 +39,196 @@ import lombok.extern.java.Log;
 public class QueueThreadReader<K> {
 
 	static final Integer POOL_SECONDS = 30;
-	private final Consumer<K> consumer;
+	static final long RETRY_MILLIS = 1000;
+	public static final String METRIC_QUEUE_SIZE = "servicemanager.queue.size";
+	public static final String METRIC_QUEUE_LAG = "servicemanager.queue.lag";
+	public static final String METRIC_QUEUE_BATCH = "servicemanager.queue.batch";
+	public static final String METRIC_QUEUE_BATCH_SIZE = "servicemanager.queue.batch.size";
+	public static final String TAG_QUEUE = "queue";
+	private final Consumer<List<K>> consumer;
+	private final CoalescingQueue<K> coalescingQueue;
 	private final IQueue<K> queue;
+	private final int batchSize;
+	private final long lingerNanos;
+	private final boolean virtual;
+	private final Timer batchTimer;
+	private final DistributionSummary batchSizeSummary;
 	private Integer counter = 0;
 
 	public QueueThreadReader(HazelcastInstance hazelcastInstance, String name, int  number, Consumer<K> consumer) {
+		this(hazelcastInstance, name, number, 1, 0, batch -> batch.forEach(consumer));
+	}
+
+	/*
+	 * Batch mode: after the first element arrives the reader drains
+	 * up to batchSize elements, waiting at most lingerMillis for the
+	 * batch to fill, and hands them to the consumer in one call.
+	 */
+	public QueueThreadReader(HazelcastInstance hazelcastInstance, String name, int number,
+			int batchSize, long lingerMillis, Consumer<List<K>> consumer) {
+		this(new CoalescingQueue<K>(hazelcastInstance, name, false, String::valueOf), name, number,
+				batchSize, lingerMillis, consumer);
+	}
+
+	public QueueThreadReader(CoalescingQueue<K> coalescingQueue, String name, int number,
+			int batchSize, long lingerMillis, Consumer<List<K>> consumer) {
+		this(coalescingQueue, name, number, batchSize, lingerMillis, false, consumer);
+	}
+
+	/*
+	 * Virtual mode runs the readers on virtual threads, number is then
+	 * the limit of batches in flight. Without a Java 21 runtime the
+	 * readers fall back to platform threads.
+	 */
+	public QueueThreadReader(CoalescingQueue<K> coalescingQueue, String name, int number,
+			int batchSize, long lingerMillis, boolean virtual, Consumer<List<K>> consumer) {
 		super();
 		this.consumer = consumer;
-		this.queue = hazelcastInstance.getQueue(name);
+		this.coalescingQueue = coalescingQueue;
+		this.queue = coalescingQueue.getQueue();
+		this.batchSize = Math.max(batchSize, 1);
+		this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+		this.virtual = virtual && isVirtualSupported();
+		registerGauges(name);
+		this.batchTimer = Timer.builder(METRIC_QUEUE_BATCH)
+				.tag(TAG_QUEUE, name)
+				.register(Metrics.globalRegistry);
+		this.batchSizeSummary = DistributionSummary.builder(METRIC_QUEUE_BATCH_SIZE)
+				.tag(TAG_QUEUE, name)
+				.register(Metrics.globalRegistry);
+		if (virtual && !this.virtual) {
+			log.warning("Queue " + name + ": virtual threads need Java 21, using platform threads");
+		}
 
 		for (int i = 0; i < number; i++) {
 			runThread(name.toLowerCase());
 		}
 	}
 
+	/*
+	 * The lag is the longest time an element waited in the queue
+	 * before it was polled, as seen by the member that owns the
+	 * queue. The other members report zero.
+	 */
+	private void registerGauges(String name) {
+		Gauge.builder(METRIC_QUEUE_SIZE, queue, IQueue::size)
+				.tag(TAG_QUEUE, name)
+				.register(Metrics.globalRegistry);
+		Gauge.builder(METRIC_QUEUE_LAG, queue, q -> q.getLocalQueueStats().getMaxAge())
+				.tag(TAG_QUEUE, name)
+				.baseUnit("milliseconds")
+				.register(Metrics.globalRegistry);
+	}
+
+	private List<K> poll() throws InterruptedException {
+		var first = queue.poll(POOL_SECONDS, TimeUnit.SECONDS);
+		if (Objects.isNull(first)) {
+			return Collections.emptyList();
+		}
+		var batch = new ArrayList<K>(batchSize);
+		batch.add(first);
+		if (batchSize > 1) {
+			queue.drainTo(batch, batchSize - batch.size());
+			final var deadline = System.nanoTime() + lingerNanos;
+			var remaining = lingerNanos;
+			while (batch.size() < batchSize && remaining > 0) {
+				var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+				if (Objects.isNull(next)) {
+					break;
+				}
+				batch.add(next);
+				queue.drainTo(batch, batchSize - batch.size());
+				remaining = deadline - System.nanoTime();
+			}
+		}
+		return coalescingQueue.take(batch);
+	}
+
+	/*
+	 * A reader stops only with its member, a failed poll is logged
+	 * and retried. Lost elements are repaired by the reconciler.
+	 */
 	private Thread runThread(String name) {
-		var thread = new Thread(() -> {
-			try {
-				while (true) {
-					Optional.ofNullable(queue.poll(POOL_SECONDS, TimeUnit.SECONDS))
-							.ifPresent(t -> consumer.accept(t));
+		Runnable reader = () -> {
+			while (true) {
+				List<K> batch;
+				try {
+					batch = poll();
+				} catch (InterruptedException e) {
+					log.warning("Queue " + name + ": reader interrupted");
+					Thread.currentThread().interrupt();
+					return;
+				} catch (HazelcastInstanceNotActiveException e) {
+					return;
+				} catch (RuntimeException e) {
+					log.warning("Queue " + name + ": poll failed: " + e);
+					if (!pause()) {
+						return;
+					}
+					continue;
+				}
+				if (batch.isEmpty()) {
+					continue;
+				}
+				try {
+					batchSizeSummary.record(batch.size());
+					batchTimer.record(() -> consumer.accept(batch));
+				} catch (RuntimeException e) {
+					log.warning("Queue " + name + ": batch of " + batch.size() + " failed: " + e);
 				}
-				
-			} catch (InterruptedException v) {
-				log.warning(v.toString());
 			}
-		}, this.getClass().getName() + "-" + name + "-" + counter);
+		};
+		var threadName = this.getClass().getName() + "-" + name + "-" + counter;
+		var thread = virtual ? newVirtualThread(reader, threadName) : new Thread(reader, threadName);
 		counter = counter + 1;
 		thread.start();
 		return thread;
 	}
 
+	private static boolean pause() {
+		try {
+			Thread.sleep(RETRY_MILLIS);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/*
+	 * Thread.ofVirtual() is looked up at runtime, the sources
+	 * are still compiled for Java 17.
+	 */
+	public static boolean isVirtualSupported() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static Thread newVirtualThread(Runnable reader, String name) {
+		try {
+			var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			var builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class).invoke(builder, name);
+			return (Thread) builderClass.getMethod("unstarted", Runnable.class).invoke(builder, reader);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Virtual threads are not available", e);
+		}
+	}
+
 	public void add(K value) {
-		queue.add(value);
+		coalescingQueue.add(value);
+	}
+
+	public void addAll(Collection<K> values) {
+		coalescingQueue.addAll(values);
+	}
+
+	public void requeueAll(Collection<K> values) {
+		coalescingQueue.requeueAll(values);
 	}
 
 }
@@ -37,6 +37,14 @@ public class StringKeyValue implements Comparable<StringKeyValue> {
 		this.value = entry.getValue();
 	}
 
+	public String getKey() {
+		return key;
+	}
+
+	public String getValue() {
+		return value;
+	}
+
 	@Override
 	public String toString() {
 		return "StringKeyValue [key=" + key + ", value=" + value + "]";
@@ -0,0 +1,46 @@
+package ru.keich.mon.servicemanager;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class StringKeyValueSerializer implements CompactSerializer<StringKeyValue> {
+
+	@Override
+	public StringKeyValue read(CompactReader reader) {
+		return new StringKeyValue(reader.readString("key"), reader.readString("value"));
+	}
+
+	@Override
+	public void write(CompactWriter writer, StringKeyValue object) {
+		writer.writeString("key", object.getKey());
+		writer.writeString("value", object.getValue());
+	}
+
+	@Override
+	public String getTypeName() {
+		return "StringKeyValue";
+	}
+
+	@Override
+	public Class<StringKeyValue> getCompactClass() {
+		return StringKeyValue.class;
+	}
+
+}
@@ -0,0 +1,70 @@
+package ru.keich.mon.servicemanager.entity;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Carries a processor per key, processors must be DataSerializable. EntityService builds one batch per
+ * partition, so every member receives only the entities it owns.
+ */
+class EntityBatchProcessor<K, T, R> implements EntryProcessor<K, T, R>, DataSerializable {
+
+	private Map<K, EntryProcessor<K, T, R>> processors;
+
+	public EntityBatchProcessor() {
+		super();
+	}
+
+	public EntityBatchProcessor(Map<K, EntryProcessor<K, T, R>> processors) {
+		super();
+		this.processors = processors;
+	}
+
+	@Override
+	public R process(Map.Entry<K, T> entry) {
+		return processors.get(entry.getKey()).process(entry);
+	}
+
+	@Override
+	public void writeData(ObjectDataOutput out) throws IOException {
+		out.writeInt(processors.size());
+		for (var e : processors.entrySet()) {
+			out.writeObject(e.getKey());
+			out.writeObject(e.getValue());
+		}
+	}
+
+	@Override
+	public void readData(ObjectDataInput in) throws IOException {
+		var size = in.readInt();
+		processors = new HashMap<K, EntryProcessor<K, T, R>>(size);
+		for (int i = 0; i < size; i++) {
+			K key = in.readObject();
+			EntryProcessor<K, T, R> processor = in.readObject();
+			processors.put(key, processor);
+		}
+	}
+
+}
@@ -1,21 +1,38 @@
 package ru.keich.mon.servicemanager.entity;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 
+import io.micrometer.core.instrument.Metrics;
+
+import ru.keich.mon.servicemanager.query.EntityComparator;
 import ru.keich.mon.servicemanager.query.Filter;
+import ru.keich.mon.servicemanager.query.InvalidQueryException;
+import ru.keich.mon.servicemanager.query.Operator;
 
 /*
  * Copyright 2024 the original author or authors.
@@ -37,20 +54,60 @@ public class EntityController<K, T> {
 
 	public static final String QUERY_PROPERTY = "property";
 	public static final String QUERY_ID = "id";
+	public static final String QUERY_LIMIT = "limit";
+	public static final String QUERY_OFFSET = "offset";
+	public static final String QUERY_SORT = "sort";
+	public static final String HEADER_TOTAL_COUNT = "X-Total-Count";
+	public static final Set<String> QUERY_PAGING = Set.of(QUERY_LIMIT, QUERY_OFFSET, QUERY_SORT);
+	public static final String QUERY_STREAM = "stream";
+	public static final String QUERY_SUBSCRIBE = "subscribe";
+	public static final String QUERY_GROUP_BY = "groupBy";
+	public static final String QUERY_Q = "q";
+	public static final String STREAM_NDJSON = "ndjson";
+	public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+	public static final String METRIC_INGEST_ENTITIES = "servicemanager.ingest.entities";
+	public static final int STREAM_CHUNK_SIZE = 500;
 	public static final String FILTER_NAME = "propertiesFilter";
 
 	protected EntityService<K, T> entityService;
 
+	protected ObjectMapper objectMapper;
+
 	public EntityController(EntityService<K, T> entityService) {
 		super();
 		this.entityService = entityService;
 	}
 
+	@Autowired
+	public void setObjectMapper(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	@ExceptionHandler(InvalidQueryException.class)
+	public ResponseEntity<String> badRequest(InvalidQueryException e) {
+		return ResponseEntity.badRequest().body(e.getMessage());
+	}
+
 	public ResponseEntity<String> addOrUpdate(@RequestBody List<T> items) {
-		items.forEach(entityService::addOrUpdate);
+		Metrics.summary(METRIC_INGEST_ENTITIES, "entity", entityService.getMapName()).record(items.size());
+		entityService.addOrUpdate(items);
 		return ResponseEntity.ok("ok");
 	}
 
+	/*
+	 * Properties are selected on the members, so the
+	 * entities are not sent whole to be filtered by json.
+	 */
+	protected Set<String> getProperties(MultiValueMap<String, String> reqParam) {
+		if (!reqParam.containsKey(QUERY_PROPERTY)) {
+			return Collections.emptySet();
+		}
+		var properties = new LinkedHashSet<String>();
+		properties.add(QUERY_ID);
+		properties.addAll(reqParam.get(QUERY_PROPERTY));
+		return properties;
+	}
+
 	protected SimpleFilterProvider getJsonFilter(MultiValueMap<String, String> reqParam) {
 		if (reqParam.containsKey(QUERY_PROPERTY)) {
 			var properties = reqParam.get(QUERY_PROPERTY)
@@ -71,16 +128,145 @@ public class EntityController<K, T> {
 		return ResponseEntity.ok(data);
 	}
 
+	/*
+	 * With limit, offset or sort only one page is returned,
+	 * the number of all matching entities is in X-Total-Count.
+	 */
 	public ResponseEntity<MappingJacksonValue> query(@RequestParam MultiValueMap<String, String> reqParam) {
-		var filters = reqParam.entrySet()
+		var filters = getFilters(reqParam);
+		var properties = getProperties(reqParam);
+		if (QUERY_PAGING.stream().noneMatch(reqParam::containsKey)) {
+			return applyFilter(new MappingJacksonValue(properties.isEmpty() ? entityService.query(filters)
+					: entityService.query(filters, properties)), reqParam);
+		}
+		var limit = getInteger(reqParam, QUERY_LIMIT, Integer.MAX_VALUE);
+		var offset = getInteger(reqParam, QUERY_OFFSET, 0);
+		if (limit <= 0 || offset < 0) {
+			return ResponseEntity.badRequest().build();
+		}
+		var comparator = new EntityComparator<K, T>(reqParam.getFirst(QUERY_SORT));
+		var page = properties.isEmpty() ? entityService.query(filters, comparator, offset, limit)
+				: entityService.query(filters, comparator, offset, limit, properties);
+		var data = applyFilter(new MappingJacksonValue(page), reqParam).getBody();
+		return ResponseEntity.ok()
+				.header(HEADER_TOTAL_COUNT, String.valueOf(entityService.count(filters)))
+				.body(data);
+	}
+
+	protected static int getInteger(MultiValueMap<String, String> reqParam, String name, int defaultValue) {
+		var value = reqParam.getFirst(name);
+		if (Objects.isNull(value)) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new InvalidQueryException("Not a number " + name + "=" + value);
+		}
+	}
+
+	protected List<Filter> getFilters(MultiValueMap<String, String> reqParam) {
+		return reqParam.entrySet()
 				.stream()
 				.filter(p -> !p.getKey().toLowerCase().equals(QUERY_PROPERTY))
+				.filter(p -> !p.getKey().toLowerCase().equals(QUERY_STREAM))
+				.filter(p -> !p.getKey().toLowerCase().equals(QUERY_SUBSCRIBE))
+				.filter(p -> !p.getKey().equalsIgnoreCase(QUERY_GROUP_BY))
+				.filter(p -> !QUERY_PAGING.contains(p.getKey().toLowerCase()))
 				.flatMap(param -> {
 			return param.getValue()
 					.stream()
-					.map(value -> new Filter(param.getKey(), value));
+					.map(value -> QUERY_Q.equalsIgnoreCase(param.getKey()) ? new Filter(QUERY_Q, Operator.QUERY, value)
+							: new Filter(param.getKey(), value));
 		}).collect(Collectors.toList());
-		return applyFilter(new MappingJacksonValue(entityService.query(filters)), reqParam);
+	}
+
+	/*
+	 * Counts of the matching entities by the groupBy properties, given
+	 * repeated or comma separated, the name of the parameter in any case.
+	 * Without groupBy the only row is the number of all matching entities.
+	 */
+	public ResponseEntity<List<Map<String, Object>>> aggregate(@RequestParam MultiValueMap<String, String> reqParam) {
+		var filters = getFilters(reqParam);
+		var groupBy = reqParam.entrySet()
+				.stream()
+				.filter(p -> p.getKey().equalsIgnoreCase(QUERY_GROUP_BY))
+				.flatMap(p -> p.getValue().stream())
+				.flatMap(value -> Arrays.stream(value.split(",")))
+				.map(String::trim)
+				.filter(name -> !name.isEmpty())
+				.distinct()
+				.toList();
+		if (groupBy.isEmpty()) {
+			return ResponseEntity.ok(List.of(Map.of(EntityService.FIELD_COUNT, entityService.count(filters))));
+		}
+		return ResponseEntity.ok(entityService.aggregate(filters, groupBy));
+	}
+
+	/*
+	 * The query in streaming mode, only the keys are collected,
+	 * the entities are loaded and written by chunks.
+	 */
+	public ResponseEntity<StreamingResponseBody> queryStream(@RequestParam MultiValueMap<String, String> reqParam) {
+		var filters = getFilters(reqParam);
+		var properties = getProperties(reqParam);
+		List<K> keys;
+		if (QUERY_PAGING.stream().noneMatch(reqParam::containsKey)) {
+			keys = entityService.queryKeys(filters);
+		} else {
+			var limit = getInteger(reqParam, QUERY_LIMIT, Integer.MAX_VALUE);
+			var offset = getInteger(reqParam, QUERY_OFFSET, 0);
+			if (limit <= 0 || offset < 0) {
+				return ResponseEntity.badRequest().build();
+			}
+			var comparator = new EntityComparator<K, T>(reqParam.getFirst(QUERY_SORT));
+			keys = entityService.queryKeys(filters, comparator, offset, limit);
+		}
+		if (properties.isEmpty()) {
+			return stream(keys, entityService::findByIds, reqParam);
+		}
+		return stream(keys, ids -> entityService.findByIds(ids, properties), reqParam);
+	}
+
+	/*
+	 * Writes a json array, or one json per line with stream=ndjson.
+	 * Only one chunk of values is held in memory at a time.
+	 */
+	protected <I> ResponseEntity<StreamingResponseBody> stream(List<I> keys, Function<Set<I>, Map<I, ?>> loader,
+			MultiValueMap<String, String> reqParam) {
+		var ndjson = STREAM_NDJSON.equalsIgnoreCase(reqParam.getFirst(QUERY_STREAM));
+		var writer = objectMapper.writer(getJsonFilter(reqParam));
+		StreamingResponseBody body = out -> {
+			var first = true;
+			if (!ndjson) {
+				out.write('[');
+			}
+			for (int from = 0; from < keys.size(); from += STREAM_CHUNK_SIZE) {
+				var chunk = keys.subList(from, Math.min(from + STREAM_CHUNK_SIZE, keys.size()));
+				var values = loader.apply(new HashSet<I>(chunk));
+				for (var key : chunk) {
+					var value = values.get(key);
+					if (Objects.isNull(value)) {
+						continue;
+					}
+					if (!ndjson && !first) {
+						out.write(',');
+					}
+					out.write(writer.writeValueAsBytes(value));
+					if (ndjson) {
+						out.write('\n');
+					}
+					first = false;
+				}
+				out.flush();
+			}
+			if (!ndjson) {
+				out.write(']');
+			}
+		};
+		return ResponseEntity.ok()
+				.contentType(ndjson ? APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+				.body(body);
 	}
 
 	public ResponseEntity<MappingJacksonValue> findById(@PathVariable K id
@@ -0,0 +1,74 @@
+package ru.keich.mon.servicemanager.entity;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Merge logic that runs on the partition owner of the entity.
+ * Subclasses must not capture services or lambdas: the processor
+ * is serialized and shipped to the member that owns the key.
+ * DataSerializable takes precedence over java serialization, so
+ * the entities inside keep the serialization format of the maps.
+ */
+public abstract class EntityProcessor<K, T> implements EntryProcessor<K, T, Boolean>, DataSerializable {
+
+	/*
+	 * An unchanged entity is written again only to refresh its update
+	 * time, at most once per touch interval. Zero touches every time.
+	 */
+	public static boolean isTouchDue(LocalDateTime last, LocalDateTime now, long touchSeconds) {
+		if (Objects.isNull(now)) {
+			return false;
+		}
+		return Objects.isNull(last) || !now.isBefore(last.plusSeconds(touchSeconds));
+	}
+
+	protected Optional<T> insert() {
+		return Optional.empty();
+	}
+
+	protected abstract Optional<T> update(T entity);
+
+	@Override
+	public Boolean process(Map.Entry<K, T> entry) {
+		var entity = entry.getValue();
+		var result = Objects.isNull(entity) ? insert() : update(entity);
+		result.ifPresent(entry::setValue);
+		return result.isPresent();
+	}
+
+	@Override
+	public void writeData(ObjectDataOutput out) throws IOException {
+
+	}
+
+	@Override
+	public void readData(ObjectDataInput in) throws IOException {
+
+	}
+
+}
@@ -1,23 +1,52 @@
 package ru.keich.mon.servicemanager.entity;
 
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.function.Function;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import com.hazelcast.config.AttributeConfig;
 import com.hazelcast.config.IndexType;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.EntryProcessor;
 import com.hazelcast.map.IMap;
+import com.hazelcast.partition.PartitionService;
+import com.hazelcast.aggregation.Aggregators;
+import com.hazelcast.query.PagingPredicate;
 import com.hazelcast.query.Predicate;
 import com.hazelcast.query.Predicates;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.query.EntityComparator;
+import ru.keich.mon.servicemanager.query.EntityProjection;
+import ru.keich.mon.servicemanager.query.Expression;
 import ru.keich.mon.servicemanager.query.Filter;
+import ru.keich.mon.servicemanager.query.InvalidQueryException;
+import ru.keich.mon.servicemanager.query.GroupCountAggregator;
+import ru.keich.mon.servicemanager.query.Operator;
+import ru.keich.mon.servicemanager.query.QueryParser;
+import ru.keich.mon.servicemanager.query.QueryPlanner;
 
 /*
  * Copyright 2024 the original author or authors.
@@ -39,64 +68,186 @@ public abstract class EntityService<K, T> {
 	
 	public static final String INDEX_FIELD_SOURCE = "source";
 	public static final String INDEX_FIELD_SOURCE_KEY = "sourceKey";
+	public static final String METRIC_LOCK_WAIT = "servicemanager.entity.lock.wait";
+	public static final String FIELD_ID = "id";
+	public static final String FIELD_STATUS = "status";
+	public static final String FIELD_CREATEDON = "createdOn";
+	public static final String FIELD_UPDATEDON = "updatedOn";
+	public static final String FIELD_COUNT = "count";
+	static final Set<Operator> TEXT_OPERATORS = Set.of(Operator.PR, Operator.CO, Operator.NC);
+
+	public enum UpsertMode {
+		PROCESSOR, LOCK
+	}
 
 	protected final IMap<K, T> map;
+
+	protected final Class<T> entityType;
+
+	protected final UpsertMode upsertMode;
+
+	protected final PartitionService partitionService;
+
+	private final Timer lockWaitTimer;
+
+	private final Map<String, IndexType> indexes = new ConcurrentHashMap<String, IndexType>();
+
+	private final Set<String> attributes;
+
+	private final QueryPlanner<K, T> queryPlanner = new QueryPlanner<K, T>(indexes, this::getPredicate);
 	
-	public EntityService(String mapName, HazelcastInstance hazelcastInstance) {
+	public EntityService(String mapName, Class<T> entityType, HazelcastInstance hazelcastInstance,
+			UpsertMode upsertMode) {
 		map = hazelcastInstance.getMap(mapName);
-		map.addIndex(IndexType.HASH, INDEX_FIELD_SOURCE);
-		map.addIndex(IndexType.HASH, INDEX_FIELD_SOURCE_KEY);
+		this.entityType = entityType;
+		this.attributes = hazelcastInstance.getConfig()
+				.findMapConfig(mapName)
+				.getAttributeConfigs()
+				.stream()
+				.map(AttributeConfig::getName)
+				.collect(Collectors.toSet());
+		this.upsertMode = upsertMode;
+		this.partitionService = hazelcastInstance.getPartitionService();
+		this.lockWaitTimer = Timer.builder(METRIC_LOCK_WAIT)
+				.tag("map", mapName)
+				.register(Metrics.globalRegistry);
+		hazelcastInstance.getConfig().findMapConfig(mapName).getIndexConfigs().stream()
+				.filter(index -> index.getAttributes().size() == 1)
+				.forEach(index -> indexes.put(index.getAttributes().get(0), index.getType()));
+		addIndex(IndexType.HASH, INDEX_FIELD_SOURCE);
+		addIndex(IndexType.HASH, INDEX_FIELD_SOURCE_KEY);
+		addIndex(IndexType.SORTED, FIELD_STATUS);
+		addIndex(IndexType.SORTED, FIELD_CREATEDON);
+		addIndex(IndexType.SORTED, FIELD_UPDATEDON);
 	}
 
-	protected void lock(K entityId, Supplier<T> insert, Function<T, T> update) {
-		map.lock(entityId);
-		try {
-			var entity = Optional.ofNullable(map.get(entityId))
-					.map(update::apply)
-					.orElseGet(insert);
-			map.set(entityId, entity);
-		} finally {
-			map.unlock(entityId);
+	/*
+	 * The query planner knows the indexes added here
+	 * and the single attribute indexes of the config.
+	 */
+	protected void addIndex(IndexType type, String attribute) {
+		map.addIndex(type, attribute);
+		indexes.put(attribute, type);
+	}
+
+	public String getMapName() {
+		return map.getName();
+	}
+
+	protected <R> R process(K entityId, EntryProcessor<K, T, R> processor) {
+		if (upsertMode == UpsertMode.LOCK) {
+			return lock(entityId, processor);
 		}
+		return map.executeOnKey(entityId, processor);
 	}
-	
-	protected void lock(K entityId, Function<T, Optional<T>> update) {
-		map.lock(entityId);
-		try {
-			Optional.ofNullable(map.get(entityId))
-					.flatMap(update::apply)
-					.ifPresent(entity -> map.set(entityId, entity));
-		} finally {
-			map.unlock(entityId);
+
+	public void process(K entityId, EntityProcessor<K, T> processor, Consumer<K> after) {
+		if (process(entityId, processor)) {
+			after.accept(entityId);
 		}
 	}
-	
-	public void lock(K entityId, Function<T, Optional<T>> update, Consumer<K> after) {
-		map.lock(entityId);
-		final boolean changed;
+
+	protected <R> Map<K, R> processAll(Map<K, ? extends EntryProcessor<K, T, R>> processors) {
+		var out = new HashMap<K, R>(processors.size());
+		if (upsertMode == UpsertMode.LOCK) {
+			processors.forEach((entityId, processor) -> out.put(entityId, lock(entityId, processor)));
+			return out;
+		}
+		processors.entrySet()
+				.stream()
+				.collect(Collectors.groupingBy(e -> partitionService.getPartition(e.getKey()).getPartitionId(),
+						Collectors.toMap(Map.Entry::getKey, e -> (EntryProcessor<K, T, R>) e.getValue())))
+				.values()
+				.stream()
+				.map(batch -> map.submitToKeys(batch.keySet(), new EntityBatchProcessor<K, T, R>(batch)))
+				.map(CompletionStage::toCompletableFuture)
+				.toList()
+				.forEach(future -> out.putAll(future.join()));
+		return out;
+	}
+
+	public void processAll(Map<K, ? extends EntityProcessor<K, T>> processors, Consumer<Set<K>> after) {
+		acceptChanged(processAll(processors), after);
+	}
+
+	protected Map<K, Boolean> processAll(Predicate<K, T> predicate, EntityProcessor<K, T> processor) {
+		if (upsertMode == UpsertMode.LOCK) {
+			var out = new HashMap<K, Boolean>();
+			map.keySet(predicate).forEach(entityId -> out.put(entityId, lock(entityId, processor)));
+			return out;
+		}
+		return map.executeOnEntries(processor, predicate);
+	}
+
+	public void processAll(Predicate<K, T> predicate, EntityProcessor<K, T> processor, Consumer<Set<K>> after) {
+		acceptChanged(processAll(predicate, processor), after);
+	}
+
+	private void acceptChanged(Map<K, Boolean> result, Consumer<Set<K>> after) {
+		var changed = result.entrySet()
+				.stream()
+				.filter(Map.Entry::getValue)
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toSet());
+		if (!changed.isEmpty()) {
+			after.accept(changed);
+		}
+	}
+
+	protected <R> R lock(K entityId, EntryProcessor<K, T, R> processor) {
+		lockWaitTimer.record(() -> map.lock(entityId));
 		try {
-			changed = Optional.ofNullable(map.get(entityId))
-					.flatMap(update::apply)
-					.map(entity -> {
-						map.set(entityId, entity);
-						return true;
-					}).orElse(false);
+			var entry = new LockedEntry<K, T>(entityId, map.get(entityId));
+			var result = processor.process(entry);
+			if (entry.isChanged()) {
+				if (Objects.isNull(entry.getValue())) {
+					map.delete(entityId);
+				} else {
+					map.set(entityId, entry.getValue());
+				}
+			}
+			return result;
 		} finally {
 			map.unlock(entityId);
 		}
-		if(changed) {
-			after.accept(entityId);
+	}
+
+	private static class LockedEntry<K, T> extends AbstractMap.SimpleEntry<K, T> {
+
+		private static final long serialVersionUID = 1L;
+
+		private boolean changed = false;
+
+		public LockedEntry(K key, T value) {
+			super(key, value);
+		}
+
+		@Override
+		public T setValue(T value) {
+			changed = true;
+			return super.setValue(value);
+		}
+
+		public boolean isChanged() {
+			return changed;
 		}
+
 	}
 	
 	protected abstract T entityRemoved(T entity);
 
 	public abstract void addOrUpdate(T entity);
 
+	public abstract void addOrUpdate(List<T> entities);
+
 	public T findById(K entityId) {
 		return map.get(entityId);
 	}
 
+	public Set<K> findAllIds() {
+		return map.keySet();
+	}
+
 	public Map<K, T> findByIds(Set<K> keys) {
 		return map.getAll(keys);
 	}
@@ -129,28 +280,241 @@ public abstract class EntityService<K, T> {
 	}
 
 	public Predicate<K, T> getPredicate(Filter filter) {
+		var enumValues = getEnumValues(filter.getName());
+		if (Objects.nonNull(enumValues) && TEXT_OPERATORS.contains(filter.getOperator())) {
+			return getEnumPredicate(filter, enumValues);
+		}
 		switch (filter.getOperator()) {
 		case NE:
-			return Predicates.notEqual(filter.getName(), filter.getValue());
+			return Predicates.notEqual(filter.getName(), toQueryValue(filter.getName(), filter.getValue()));
 		case EQ:
-			return Predicates.equal(filter.getName(), filter.getValue());
+			return Predicates.equal(filter.getName(), toQueryValue(filter.getName(), filter.getValue()));
 		case LT:
-			return Predicates.lessThan(filter.getName(), filter.getValue());
+			return Predicates.lessThan(filter.getName(), toQueryValue(filter.getName(), filter.getValue()));
+		case LE:
+			return Predicates.lessEqual(filter.getName(), toQueryValue(filter.getName(), filter.getValue()));
 		case GT:
-			return Predicates.greaterEqual(filter.getName(), filter.getValue());
+			return Predicates.greaterThan(filter.getName(), toQueryValue(filter.getName(), filter.getValue()));
+		case GE:
+			return Predicates.greaterEqual(filter.getName(), toQueryValue(filter.getName(), filter.getValue()));
+		case IN:
+			return Predicates.in(filter.getName(), filter.getValues()
+					.stream()
+					.map(value -> toQueryValue(filter.getName(), value))
+					.toArray(Comparable[]::new));
+		case BW:
+			if (filter.getValues().size() != 2) {
+				throw new InvalidQueryException("Between takes two values: " + filter.getName());
+			}
+			return Predicates.between(filter.getName(), toQueryValue(filter.getName(), filter.getValues().get(0)),
+					toQueryValue(filter.getName(), filter.getValues().get(1)));
+		case PR:
+			return Predicates.between(filter.getName(), filter.getValue(), filter.getValue() + Character.MAX_VALUE);
 		case CO:
 			return Predicates.ilike(filter.getName(), "%" + filter.getValue() + "%");
 		case NC:
 			return Predicates.not(Predicates.ilike(filter.getName(), "%" + filter.getValue() + "%"));
 		default:
-			throw new UnsupportedOperationException("Operator not supported");
+			throw new InvalidQueryException("Unsupported operator " + filter.getOperator() + " for "
+					+ filter.getName());
+		}
+	}
+
+	/*
+	 * Enums are stored as ordinals, a text match on them is done on the
+	 * constant names, ignoring case, and becomes an IN over the ordinals.
+	 */
+	private Predicate<K, T> getEnumPredicate(Filter filter, Enum<?>[] values) {
+		var value = filter.getValue().toUpperCase(Locale.ROOT);
+		var ordinals = Arrays.stream(values)
+				.filter(e -> filter.getOperator() == Operator.PR ? e.name().startsWith(value)
+						: e.name().contains(value))
+				.map(Enum::ordinal)
+				.toArray(Comparable[]::new);
+		Predicate<K, T> predicate = ordinals.length == 0 ? Predicates.alwaysFalse()
+				: Predicates.in(filter.getName(), ordinals);
+		return filter.getOperator() == Operator.NC ? Predicates.not(predicate) : predicate;
+	}
+
+	/*
+	 * The constants of an attribute stored as an enum ordinal,
+	 * null for the other attributes.
+	 */
+	protected Enum<?>[] getEnumValues(String name) {
+		return FIELD_STATUS.equals(name) ? BaseStatus.values() : null;
+	}
+
+	/*
+	 * Converts a query value to the stored form of the compact
+	 * serializers: statuses are ordinals, timestamps epoch millis.
+	 */
+	protected Comparable<?> toQueryValue(String name, String value) {
+		switch (name) {
+		case FIELD_STATUS:
+			return toOrdinal(BaseStatus.values(), value);
+		case FIELD_CREATEDON:
+		case FIELD_UPDATEDON:
+			try {
+				return LocalDateTime.parse(value).toInstant(ZoneOffset.UTC).toEpochMilli();
+			} catch (DateTimeParseException e) {
+				return value;
+			}
+		default:
+			return value;
+		}
+	}
+
+	/*
+	 * The reverse of toQueryValue for the values read by the query
+	 * engine, so the stored forms do not leak into the results.
+	 */
+	protected Object fromQueryValue(String name, Object value) {
+		switch (name) {
+		case FIELD_STATUS:
+			return value instanceof Integer ordinal ? BaseStatus.fromInteger(ordinal) : value;
+		case FIELD_CREATEDON:
+		case FIELD_UPDATEDON:
+			return value instanceof Long millis ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC)
+					: value;
+		default:
+			return value;
 		}
 	}
 
+	protected static <E extends Enum<E>> Comparable<?> toOrdinal(E[] values, String value) {
+		return Arrays.stream(values)
+				.filter(e -> e.name().equalsIgnoreCase(value))
+				.findFirst()
+				.<Comparable<?>>map(Enum::ordinal)
+				.orElse(value);
+	}
+
+	/*
+	 * The filters are AND-ed, a QUERY filter holds a q expression.
+	 */
+	public Predicate<K, T> getPredicate(List<Filter> filters) {
+		return queryPlanner.plan(new Expression.And(filters.stream()
+				.map(filter -> filter.getOperator() == Operator.QUERY ? QueryParser.parse(filter.getValue())
+						: new Expression.Term(filter))
+				.toList()));
+	}
+
 	public List<T> query(List<Filter> filters) {
-		var arr = filters.stream().map(f -> getPredicate(f)).toArray(Predicate[]::new);
-		Predicate<K, T> p = Predicates.and(arr);
-		return map.values(p).stream().toList();
+		return map.values(getPredicate(filters)).stream().toList();
 	}
-	
+
+	/*
+	 * Members return only their best entries of the page. An offset
+	 * aligned to the limit is served as a page of limit size, otherwise
+	 * the first offset + limit entries are fetched and the head skipped.
+	 */
+	public List<T> query(List<Filter> filters, EntityComparator<K, T> comparator, int offset, int limit) {
+		var aligned = offset % limit == 0;
+		return map.values(getPagingPredicate(filters, comparator, offset, limit)).stream()
+				.skip(aligned ? 0 : offset)
+				.toList();
+	}
+
+	private PagingPredicate<K, T> getPagingPredicate(List<Filter> filters, EntityComparator<K, T> comparator,
+			int offset, int limit) {
+		var aligned = offset % limit == 0;
+		var pageSize = aligned ? limit : (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+		var paging = Predicates.pagingPredicate(getPredicate(filters), comparator, pageSize);
+		paging.setPage(aligned ? offset / limit : 0);
+		return paging;
+	}
+
+	public List<Map<String, Object>> query(List<Filter> filters, Set<String> properties) {
+		return map.project(new EntityProjection<K, T>(properties), getPredicate(filters))
+				.stream()
+				.toList();
+	}
+
+	/*
+	 * The page is selected by keys first, then the properties
+	 * of the page keys are read where the entries live.
+	 */
+	public List<Map<String, Object>> query(List<Filter> filters, EntityComparator<K, T> comparator, int offset,
+			int limit, Set<String> properties) {
+		var keys = queryKeys(filters, comparator, offset, limit);
+		if (keys.isEmpty()) {
+			return Collections.emptyList();
+		}
+		var values = findByIds(new HashSet<K>(keys), properties);
+		return keys.stream()
+				.map(values::get)
+				.filter(Objects::nonNull)
+				.toList();
+	}
+
+	public List<K> queryKeys(List<Filter> filters) {
+		return new ArrayList<K>(map.keySet(getPredicate(filters)));
+	}
+
+	public List<K> queryKeys(List<Filter> filters, EntityComparator<K, T> comparator, int offset, int limit) {
+		var aligned = offset % limit == 0;
+		return map.keySet(getPagingPredicate(filters, comparator, offset, limit))
+				.stream()
+				.skip(aligned ? 0 : offset)
+				.toList();
+	}
+
+	public Map<K, Map<String, Object>> findByIds(Set<K> keys, Set<String> properties) {
+		return map.executeOnKeys(keys, new EntityProjection<K, T>(properties));
+	}
+
+	public long count(List<Filter> filters) {
+		return map.aggregate(Aggregators.count(), getPredicate(filters));
+	}
+
+	/*
+	 * Counts the matching entities on the members by the values of
+	 * the groupBy attributes. A row holds the values and the count,
+	 * the largest groups come first.
+	 */
+	public List<Map<String, Object>> aggregate(List<Filter> filters, List<String> groupBy) {
+		groupBy.stream()
+				.filter(name -> !isAttribute(name))
+				.findFirst()
+				.ifPresent(name -> {
+					throw new InvalidQueryException("Unknown attribute " + name);
+				});
+		var counts = map.aggregate(new GroupCountAggregator<K, T>(groupBy), getPredicate(filters));
+		return counts.entrySet()
+				.stream()
+				.sorted(Map.Entry.<List<Object>, Long>comparingByValue().reversed())
+				.map(e -> {
+					Map<String, Object> row = new LinkedHashMap<String, Object>();
+					for (int i = 0; i < groupBy.size(); i++) {
+						row.put(groupBy.get(i), fromQueryValue(groupBy.get(i), e.getKey().get(i)));
+					}
+					row.put(FIELD_COUNT, e.getValue());
+					return row;
+				})
+				.toList();
+	}
+
+	/*
+	 * An attribute of the map config, as events[keys], or a field the
+	 * compact serializers write as it is. Maps are written as arrays of
+	 * keys and values, a path as fields.name finds nothing in them.
+	 */
+	public boolean isAttribute(String name) {
+		var first = name.split("[.\\[]", 2)[0];
+		if (attributes.contains(first)) {
+			return true;
+		}
+		return first.equals(name) && EntityComparator.findField(entityType, name)
+				.map(Field::getType)
+				.filter(EntityService::isStoredAsIs)
+				.isPresent();
+	}
+
+	private static boolean isStoredAsIs(Class<?> type) {
+		var component = type.isArray() ? type.getComponentType() : type;
+		return component.isPrimitive() || component.isEnum() || component == String.class
+				|| component == Boolean.class || component == LocalDateTime.class
+				|| Number.class.isAssignableFrom(component);
+	}
+
 }
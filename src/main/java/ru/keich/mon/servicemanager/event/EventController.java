@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import ru.keich.mon.servicemanager.entity.EntityController;
 
@@ -66,7 +67,21 @@ public class EventController extends EntityController<String, Event> {
 	public ResponseEntity<MappingJacksonValue> query(@RequestParam MultiValueMap<String, String> reqParam) {
 		return super.query(reqParam);
 	}
+
+	@Override
+	@GetMapping(value = "/event", params = QUERY_STREAM)
+	@CrossOrigin(origins = "*")
+	public ResponseEntity<StreamingResponseBody> queryStream(@RequestParam MultiValueMap<String, String> reqParam) {
+		return super.queryStream(reqParam);
+	}
 	
+	@Override
+	@GetMapping("/event/aggregate")
+	@CrossOrigin(origins = "*")
+	public ResponseEntity<List<Map<String, Object>>> aggregate(@RequestParam MultiValueMap<String, String> reqParam) {
+		return super.aggregate(reqParam);
+	}
+
 	@Override
 	@GetMapping("/event/{id}")
 	@CrossOrigin(origins = "*")
@@ -0,0 +1,69 @@
+package ru.keich.mon.servicemanager.event;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.CompactFields;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Type and status are written as ordinals, queries on them are
+ * converted in EventService.
+ */
+public class EventSerializer implements CompactSerializer<Event> {
+
+	@Override
+	public Event read(CompactReader reader) {
+		var type = CompactFields.toEnum(Event.EventType.values(), CompactFields.readInt32(reader, "type", 0), Event.EventType.NOTSET);
+		var status = BaseStatus.fromInteger(CompactFields.readInt32(reader, "status", BaseStatus.CLEAR.ordinal()));
+		var event = new Event(reader.readString("id"), reader.readString("source"), reader.readString("sourceKey"), type, status);
+		event.setCreatedOn(CompactFields.readTimestamp(reader, "createdOn", null));
+		event.setUpdatedOn(CompactFields.readTimestamp(reader, "updatedOn", null));
+		event.setFields(CompactFields.readStringMap(reader, "fields"));
+		event.setNode(CompactFields.readString(reader, "node", ""));
+		event.setSummary(CompactFields.readString(reader, "summary", ""));
+		return event;
+	}
+
+	@Override
+	public void write(CompactWriter writer, Event object) {
+		writer.writeString("id", object.getId());
+		writer.writeString("source", object.getSource());
+		writer.writeString("sourceKey", object.getSourceKey());
+		writer.writeInt32("type", CompactFields.ordinal(object.getType()));
+		writer.writeInt32("status", object.getStatus().ordinal());
+		CompactFields.writeTimestamp(writer, "createdOn", object.getCreatedOn());
+		CompactFields.writeTimestamp(writer, "updatedOn", object.getUpdatedOn());
+		CompactFields.writeStringMap(writer, "fields", object.getFields());
+		writer.writeString("node", object.getNode());
+		writer.writeString("summary", object.getSummary());
+	}
+
+	@Override
+	public String getTypeName() {
+		return "Event";
+	}
+
+	@Override
+	public Class<Event> getCompactClass() {
+		return Event.class;
+	}
+
+}
@@ -1,12 +1,24 @@
 package ru.keich.mon.servicemanager.event;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.hazelcast.collection.IQueue;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
 
+import ru.keich.mon.servicemanager.CoalescingQueue;
+import ru.keich.mon.servicemanager.CompactFields;
+import ru.keich.mon.servicemanager.entity.EntityProcessor;
 import ru.keich.mon.servicemanager.entity.EntityService;
 
 /*
@@ -28,27 +40,132 @@ import ru.keich.mon.servicemanager.entity.EntityService;
 @Service
 public class EventService extends EntityService<String, Event>{
 	
-	static String NAME_EVENTS_MAP = "events";
+	public static final String NAME_EVENTS_MAP = "events";
 	public static final String QUEUE_EVENT_CHANGE_NAME = "queueEventChange";
 	public static final String QUEUE_EVENT_REMOVED_NAME = "queueEventRemoved";
-	protected final IQueue<String> queueEventChange;
-	protected final IQueue<String> queueEventRemoved;
+	public static final String FIELD_TYPE = "type";
+	protected final CoalescingQueue<String> queueEventChange;
+	protected final CoalescingQueue<String> queueEventRemoved;
+	private final long touchSeconds;
 	
-	public EventService(HazelcastInstance hazelcastInstance) {
-		super(NAME_EVENTS_MAP, hazelcastInstance);
-		queueEventChange = hazelcastInstance.getQueue(QUEUE_EVENT_CHANGE_NAME);
-		queueEventRemoved = hazelcastInstance.getQueue(QUEUE_EVENT_REMOVED_NAME);
+	public EventService(HazelcastInstance hazelcastInstance,
+			@Value("${ru.keich.mon.servicemanager.entity.upsertmode:PROCESSOR}") UpsertMode upsertMode,
+			@Value("${ru.keich.mon.servicemanager.queue.coalesce:true}") Boolean coalesce,
+			@Value("${ru.keich.mon.servicemanager.queue.pendingttlmillis:60000}") Long pendingTtlMillis,
+			@Value("${ru.keich.mon.servicemanager.entity.touchseconds:60}") Long touchSeconds) {
+		super(NAME_EVENTS_MAP, Event.class, hazelcastInstance, upsertMode);
+		this.touchSeconds = touchSeconds;
+		queueEventChange = new CoalescingQueue<String>(hazelcastInstance, QUEUE_EVENT_CHANGE_NAME, coalesce,
+				Function.identity(), pendingTtlMillis);
+		queueEventRemoved = new CoalescingQueue<String>(hazelcastInstance, QUEUE_EVENT_REMOVED_NAME, coalesce,
+				Function.identity(), pendingTtlMillis);
 	}
 	
 	@Override
 	public void addOrUpdate(Event event) {
-		var eventId = event.getId();
-		lock(eventId, () -> event, old -> {
+		process(event.getId(), new EventUpsert(event, LocalDateTime.now(), touchSeconds), queueEventChange::add);
+	}
+
+	@Override
+	public void addOrUpdate(List<Event> events) {
+		var updatedOn = LocalDateTime.now();
+		var processors = events.stream()
+				.collect(Collectors.toMap(Event::getId, event -> new EventUpsert(event, updatedOn, touchSeconds),
+						(a, b) -> b));
+		processAll(processors, queueEventChange::addAll);
+	}
+
+	@Override
+	protected Comparable<?> toQueryValue(String name, String value) {
+		if (FIELD_TYPE.equals(name)) {
+			return toOrdinal(Event.EventType.values(), value);
+		}
+		return super.toQueryValue(name, value);
+	}
+
+	@Override
+	protected Enum<?>[] getEnumValues(String name) {
+		return FIELD_TYPE.equals(name) ? Event.EventType.values() : super.getEnumValues(name);
+	}
+
+	@Override
+	protected Object fromQueryValue(String name, Object value) {
+		if (FIELD_TYPE.equals(name) && value instanceof Integer ordinal) {
+			return CompactFields.toEnum(Event.EventType.values(), ordinal, null);
+		}
+		return super.fromQueryValue(name, value);
+	}
+
+	/*
+	 * Collectors resend unchanged events every poll. Such an event is
+	 * not written and not queued, only its update time is touched.
+	 */
+	static class EventUpsert extends EntityProcessor<String, Event> {
+
+		private Event event;
+		private LocalDateTime updatedOn;
+		private long touchSeconds;
+
+		public EventUpsert() {
+			super();
+		}
+
+		public EventUpsert(Event event, LocalDateTime updatedOn, long touchSeconds) {
+			super();
+			this.event = event;
+			this.updatedOn = updatedOn;
+			this.touchSeconds = touchSeconds;
+		}
+
+		@Override
+		public Boolean process(Map.Entry<String, Event> entry) {
+			var old = entry.getValue();
+			if (Objects.nonNull(old) && isSame(old, event)) {
+				if (isTouchDue(old.getUpdatedOn(), updatedOn, touchSeconds)) {
+					old.setUpdatedOn(updatedOn);
+					entry.setValue(old);
+				}
+				return false;
+			}
+			return super.process(entry);
+		}
+
+		static boolean isSame(Event old, Event event) {
+			return old.getType() == event.getType()
+					&& old.getStatus() == event.getStatus()
+					&& Objects.equals(old.getSource(), event.getSource())
+					&& Objects.equals(old.getSourceKey(), event.getSourceKey())
+					&& Objects.equals(old.getNode(), event.getNode())
+					&& Objects.equals(old.getSummary(), event.getSummary())
+					&& Objects.equals(old.getFields(), event.getFields());
+		}
+
+		@Override
+		protected Optional<Event> insert() {
+			return Optional.of(event);
+		}
+
+		@Override
+		protected Optional<Event> update(Event old) {
 			event.setCreatedOn(old.getCreatedOn());
-			event.setUpdatedOn(LocalDateTime.now());
-			return event;
-		});
-		queueEventChange.add(event.getId());
+			event.setUpdatedOn(updatedOn);
+			return Optional.of(event);
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeObject(event);
+			out.writeObject(updatedOn);
+			out.writeLong(touchSeconds);
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			event = in.readObject();
+			updatedOn = in.readObject();
+			touchSeconds = in.readLong();
+		}
+
 	}
 
 	@Override
@@ -2,6 +2,8 @@ package ru.keich.mon.servicemanager.item;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -13,7 +15,6 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.Setter;
 import ru.keich.mon.servicemanager.BaseStatus;
-import ru.keich.mon.servicemanager.StringKeyValue;
 import ru.keich.mon.servicemanager.mapstatus.MapStatus;
 
 /*
@@ -58,10 +59,10 @@ public class Item {
 	private String[] childrenIds = new String[0];
 	
 	transient
-	private Item[] children;
+	private List<Item> children;
 	
 	transient
-	private Item[] parents;
+	private List<Item> parents;
 
 	@JsonProperty(access = JsonProperty.Access.READ_ONLY)
 	private boolean hasChildren = false;
@@ -75,7 +76,10 @@ public class Item {
 	private MapStatus childStatus = new MapStatus();
 
 	@JsonIgnore
-	private StringKeyValue[] allFiltersEqualFields;
+	private long statusVersion = 0;
+
+	@JsonIgnore
+	private Map<String, Long> childStatusVersion = new HashMap<String, Long>();
 
 	@JsonCreator
 	public Item(
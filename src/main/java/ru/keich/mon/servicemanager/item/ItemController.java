@@ -1,6 +1,7 @@
 package ru.keich.mon.servicemanager.item;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -9,7 +10,9 @@ import java.util.Objects;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -21,10 +24,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import lombok.extern.java.Log;
-import ru.keich.mon.servicemanager.StringKeyValue;
+import reactor.core.publisher.Flux;
 import ru.keich.mon.servicemanager.entity.EntityController;
+import ru.keich.mon.servicemanager.event.EventService;
+import ru.keich.mon.servicemanager.item.ItemService.ItemStatus;
 
 /*
  * Copyright 2024 the original author or authors.
@@ -50,12 +56,20 @@ public class ItemController extends EntityController<String, Item> {
 	public static final String FILTER_NAME = "propertiesFilter";
 	public static final String QUERY_CHILDREN = "children";
 	public static final String QUERY_PARENTS = "parents";
+	public static final String QUERY_DEPTH = "depth";
 
 	private ItemService itemService;
 
-	public ItemController(@Autowired ItemService itemService) {
+	private EventService eventService;
+
+	private ItemStatusFeed itemStatusFeed;
+
+	public ItemController(@Autowired ItemService itemService, @Autowired EventService eventService,
+			@Autowired ItemStatusFeed itemStatusFeed) {
 		super(itemService);
 		this.itemService = itemService;
+		this.eventService = eventService;
+		this.itemStatusFeed = itemStatusFeed;
 	}
 
 	@PostMapping("/item")
@@ -69,11 +83,6 @@ public class ItemController extends EntityController<String, Item> {
 			if (Objects.isNull(item.getUpdatedOn())) {
 				item.setUpdatedOn(dateTime);
 			}
-			var allFiltersEqualFields = item.getFilters().entrySet().stream()
-					.flatMap(e -> e.getValue().getEqualFields().entrySet().stream())
-					.map(StringKeyValue::new)
-					.toArray(StringKeyValue[] ::new);
-			item.setAllFiltersEqualFields(allFiltersEqualFields);
 			if(item.getChildrenIds().length > 0) {
 				item.setHasChildren(true);
 			}
@@ -88,6 +97,30 @@ public class ItemController extends EntityController<String, Item> {
 		return super.query(reqParam);
 	}
 
+	@GetMapping(value = "/item", params = QUERY_STREAM)
+	@CrossOrigin(origins = "*")
+	@Override
+	public ResponseEntity<StreamingResponseBody> queryStream(@RequestParam MultiValueMap<String, String> reqParam) {
+		return super.queryStream(reqParam);
+	}
+
+	@GetMapping("/item/aggregate")
+	@CrossOrigin(origins = "*")
+	@Override
+	public ResponseEntity<List<Map<String, Object>>> aggregate(@RequestParam MultiValueMap<String, String> reqParam) {
+		return super.aggregate(reqParam);
+	}
+
+	/*
+	 * Status changes of the items matching the query, as server-sent events.
+	 */
+	@GetMapping(value = "/item", params = QUERY_SUBSCRIBE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@CrossOrigin(origins = "*")
+	public Flux<ServerSentEvent<Map<String, ItemStatus>>> subscribe(@RequestParam MultiValueMap<String, String> reqParam) {
+		var filters = getFilters(reqParam);
+		return itemStatusFeed.subscribe(() -> new HashSet<String>(itemService.queryKeys(filters)));
+	}
+
 	@GetMapping("/item/{id}")
 	@CrossOrigin(origins = "*")
 	@Override
@@ -136,69 +169,63 @@ public class ItemController extends EntityController<String, Item> {
 		return applyFilter(new MappingJacksonValue(itemService.findAllEventsById(id)), reqParam);
 	}
 
+	@GetMapping(value = "/item/{id}/events", params = QUERY_STREAM)
+	@CrossOrigin(origins = "*")
+	public ResponseEntity<StreamingResponseBody> findAllEventsByIdStream(@PathVariable String id
+			,@RequestParam MultiValueMap<String, String> reqParam) {
+		var eventIds = new ArrayList<String>(itemService.findAllEventIdsById(id));
+		var properties = getProperties(reqParam);
+		if (properties.isEmpty()) {
+			return stream(eventIds, eventService::findByIds, reqParam);
+		}
+		return stream(eventIds, ids -> eventService.findByIds(ids, properties), reqParam);
+	}
+
+	/*
+	 * The tree has no stream mode. It is one nested object, and a shared
+	 * item can only be placed after the whole tree is read, so the items
+	 * are held in memory anyway. Jackson already writes the response
+	 * without buffering it, depth and limit bound the size.
+	 */
 	@GetMapping("/item/{id}/tree")
 	@CrossOrigin(origins = "*")
 	// TODO rename children/tree
 	public ResponseEntity<MappingJacksonValue> getTree(@PathVariable String id
+			,@RequestParam(name = QUERY_DEPTH, defaultValue = "" + Integer.MAX_VALUE) Integer depth
+			,@RequestParam(name = QUERY_LIMIT, defaultValue = "" + Integer.MAX_VALUE) Integer limit
 			,@RequestParam MultiValueMap<String, String> reqParam) {
 		if (reqParam.containsKey(QUERY_PROPERTY)) {
 			reqParam.add(QUERY_PROPERTY, QUERY_CHILDREN);
 		}
-		return Optional.ofNullable(itemService.findById(id))
-				.map(parent -> setChildren(parent, new HashSet<String>()))
+		return itemService.findTreeById(id, depth, limit)
 				.map(parent -> applyFilter(new MappingJacksonValue(parent), reqParam))
 				.orElse(ResponseEntity.notFound().build());
 	}
 
-	private Item setChildren(Item parent, HashSet<String> history) {
-		var children = itemService.findByIds(parent.getChildrenIds())
-				.entrySet()
-				.stream()
-				.map(Map.Entry::getValue)
-				.toArray(Item[]::new);
-		history.add(parent.getId());
-		for(var child: children) {
-			if (history.contains(child.getId())) {
-				log.warning("setChildren: circle found from " + parent.getId() + " to " + child.getId());
-			} else {
-				setChildren(child, history);
-			}
-		}
-		parent.setChildren(children);
-		history.remove(parent.getId());
-		return parent;
+	/*
+	 * Status changes of the subtree, as server-sent events.
+	 */
+	@GetMapping(value = "/item/{id}/tree", params = QUERY_SUBSCRIBE, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@CrossOrigin(origins = "*")
+	public Flux<ServerSentEvent<Map<String, ItemStatus>>> subscribeTree(@PathVariable String id) {
+		return itemStatusFeed.subscribe(() -> itemService.findSubtreeIdsById(id));
 	}
 
+	/*
+	 * No stream mode, as for the children tree.
+	 */
 	@GetMapping("/item/{id}/parents/tree")
 	@CrossOrigin(origins = "*")
 	public ResponseEntity<MappingJacksonValue> findParentsTreeById(@PathVariable String id
+			,@RequestParam(name = QUERY_DEPTH, defaultValue = "" + Integer.MAX_VALUE) Integer depth
+			,@RequestParam(name = QUERY_LIMIT, defaultValue = "" + Integer.MAX_VALUE) Integer limit
 			,@RequestParam MultiValueMap<String, String> reqParam) {
 		if (reqParam.containsKey(QUERY_PROPERTY)) {
 			reqParam.add(QUERY_PROPERTY, QUERY_PARENTS);
 		}
-		return Optional.ofNullable(itemService.findById(id))
-				.map(child -> setParents(child, new HashSet<String>()))
+		return itemService.findParentsTreeById(id, depth, limit)
 				.map(child -> applyFilter(new MappingJacksonValue(child), reqParam))
 				.orElse(ResponseEntity.notFound().build());
 	}
 
-	private Item setParents(Item child, HashSet<String> history) {
-		var parents = itemService.findParentIdsById(child.getId()).stream()
-				.map(itemService::findById)
-				.filter(Objects::nonNull)
-				.toArray(Item[]::new);
-		
-		history.add(child.getId());
-		for(var parent: parents) {
-			if (history.contains(parent.getId())) {
-				log.warning("setParents: circle found from " + parent.getId() + " to " + child.getId());
-			} else {
-				setParents(parent, history);
-			}
-		}
-		child.setParents(parents);
-		history.remove(child.getId());
-		return child;
-	}
-
 }
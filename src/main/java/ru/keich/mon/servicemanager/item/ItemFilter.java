@@ -4,6 +4,7 @@ import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import ru.keich.mon.servicemanager.BaseStatus;
@@ -26,6 +27,7 @@ import ru.keich.mon.servicemanager.BaseStatus;
 
 @Getter
 @Setter
+@EqualsAndHashCode
 public class ItemFilter {
 
 	private BaseStatus resultStatus = BaseStatus.INDETERMINATE;
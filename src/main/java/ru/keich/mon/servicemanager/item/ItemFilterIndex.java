@@ -0,0 +1,156 @@
+package ru.keich.mon.servicemanager.item;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import lombok.Getter;
+import ru.keich.mon.servicemanager.StringKeyValue;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Member local inverted index of item filters. Every field of a filter
+ * points to the filter, an event matches the filter when the number of
+ * its fields found in the index reaches the filter size. For each item
+ * the first matching filter wins, as in the item filters order.
+ * Filters without equal fields never match.
+ */
+class ItemFilterIndex {
+
+	private final Map<StringKeyValue, Set<FilterRef>> byField = new HashMap<StringKeyValue, Set<FilterRef>>();
+	private final Map<String, List<FilterRef>> byItem = new HashMap<String, List<FilterRef>>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	@Getter
+	private static class FilterRef {
+
+		final String itemId;
+		final ItemFilter filter;
+		final int size;
+		final int order;
+
+		public FilterRef(String itemId, ItemFilter filter, int order) {
+			super();
+			this.itemId = itemId;
+			this.filter = filter;
+			this.size = filter.getEqualFields().size();
+			this.order = order;
+		}
+
+	}
+
+	public void put(String itemId, Map<String, ItemFilter> filters) {
+		lock.writeLock().lock();
+		try {
+			removeRefs(itemId);
+			var order = 0;
+			var refs = new ArrayList<FilterRef>(filters.size());
+			for (var filter : filters.values()) {
+				if (Objects.isNull(filter.getEqualFields()) || filter.getEqualFields().isEmpty()) {
+					continue;
+				}
+				var ref = new FilterRef(itemId, filter, order++);
+				filter.getEqualFields()
+						.entrySet()
+						.stream()
+						.map(StringKeyValue::new)
+						.forEach(kv -> byField.computeIfAbsent(kv, k -> new HashSet<FilterRef>()).add(ref));
+				refs.add(ref);
+			}
+			if (!refs.isEmpty()) {
+				byItem.put(itemId, refs);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void putIfAbsent(String itemId, Map<String, ItemFilter> filters) {
+		lock.writeLock().lock();
+		try {
+			if (!byItem.containsKey(itemId)) {
+				put(itemId, filters);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(String itemId) {
+		lock.writeLock().lock();
+		try {
+			removeRefs(itemId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void removeRefs(String itemId) {
+		Optional.ofNullable(byItem.remove(itemId)).orElse(Collections.emptyList()).forEach(ref -> {
+			ref.getFilter().getEqualFields()
+					.entrySet()
+					.stream()
+					.map(StringKeyValue::new)
+					.forEach(kv -> {
+						var refs = byField.get(kv);
+						if (Objects.nonNull(refs)) {
+							refs.remove(ref);
+							if (refs.isEmpty()) {
+								byField.remove(kv);
+							}
+						}
+					});
+		});
+	}
+
+	/*
+	 * Returns the matched filter by item id.
+	 */
+	public Map<String, ItemFilter> match(Map<String, String> fields) {
+		var counts = new HashMap<FilterRef, Integer>();
+		var matched = new HashMap<String, FilterRef>();
+		lock.readLock().lock();
+		try {
+			fields.entrySet()
+					.stream()
+					.map(StringKeyValue::new)
+					.map(byField::get)
+					.filter(Objects::nonNull)
+					.flatMap(Set::stream)
+					.forEach(ref -> {
+						if (counts.merge(ref, 1, Integer::sum) == ref.getSize()) {
+							matched.merge(ref.getItemId(), ref, (a, b) -> a.getOrder() <= b.getOrder() ? a : b);
+						}
+					});
+		} finally {
+			lock.readLock().unlock();
+		}
+		var out = new HashMap<String, ItemFilter>(matched.size());
+		matched.forEach((itemId, ref) -> out.put(itemId, ref.getFilter()));
+		return out;
+	}
+
+}
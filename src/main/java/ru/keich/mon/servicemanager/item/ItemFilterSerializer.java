@@ -0,0 +1,54 @@
+package ru.keich.mon.servicemanager.item;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.CompactFields;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class ItemFilterSerializer implements CompactSerializer<ItemFilter> {
+
+	@Override
+	public ItemFilter read(CompactReader reader) {
+		var filter = new ItemFilter();
+		filter.setResultStatus(BaseStatus.fromInteger(CompactFields.readInt32(reader, "resultStatus", BaseStatus.INDETERMINATE.ordinal())));
+		filter.setUsingResultStatus(CompactFields.readBoolean(reader, "usingResultStatus", false));
+		filter.setEqualFields(CompactFields.readStringMap(reader, "equalFields"));
+		return filter;
+	}
+
+	@Override
+	public void write(CompactWriter writer, ItemFilter object) {
+		writer.writeInt32("resultStatus", object.getResultStatus().ordinal());
+		writer.writeBoolean("usingResultStatus", object.isUsingResultStatus());
+		CompactFields.writeStringMap(writer, "equalFields", object.getEqualFields());
+	}
+
+	@Override
+	public String getTypeName() {
+		return "ItemFilter";
+	}
+
+	@Override
+	public Class<ItemFilter> getCompactClass() {
+		return ItemFilter.class;
+	}
+
+}
@@ -0,0 +1,89 @@
+package ru.keich.mon.servicemanager.item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+class ItemGraph {
+
+	@Getter
+	static class Level {
+
+		final List<String> ids;
+		final boolean cycle;
+
+		public Level(List<String> ids, boolean cycle) {
+			super();
+			this.ids = ids;
+			this.cycle = cycle;
+		}
+
+	}
+
+	/*
+	 * Kahn's algorithm over the child to parent edges: leaves first,
+	 * an item comes in the level after its last child. Children out of
+	 * the map are ignored. What is left is in a cycle or under one.
+	 */
+	static List<Level> levels(Map<String, String[]> childrenIds) {
+		var parents = new HashMap<String, List<String>>();
+		var pending = new HashMap<String, Integer>(childrenIds.size());
+		childrenIds.forEach((itemId, ids) -> {
+			var children = Arrays.stream(ids)
+					.filter(childrenIds::containsKey)
+					.distinct()
+					.toList();
+			children.forEach(childId -> parents.computeIfAbsent(childId, k -> new ArrayList<String>()).add(itemId));
+			pending.put(itemId, children.size());
+		});
+		var out = new ArrayList<Level>();
+		List<String> current = pending.entrySet()
+				.stream()
+				.filter(e -> e.getValue() == 0)
+				.map(Map.Entry::getKey)
+				.toList();
+		var done = 0;
+		while (!current.isEmpty()) {
+			out.add(new Level(current, false));
+			done += current.size();
+			var next = new ArrayList<String>();
+			for (var childId : current) {
+				for (var parentId : parents.getOrDefault(childId, List.of())) {
+					if (pending.merge(parentId, -1, Integer::sum) == 0) {
+						next.add(parentId);
+					}
+				}
+			}
+			current = next;
+		}
+		if (done < childrenIds.size()) {
+			out.add(new Level(pending.entrySet()
+					.stream()
+					.filter(e -> e.getValue() > 0)
+					.map(Map.Entry::getKey)
+					.toList(), true));
+		}
+		return out;
+	}
+
+}
@@ -0,0 +1,62 @@
+package ru.keich.mon.servicemanager.item;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Settings of the item service under ru.keich.mon.servicemanager.item.
+ * The queue and entity settings shared with the event service are
+ * read where both services take them.
+ */
+@Component
+@ConfigurationProperties(prefix = ItemProperties.PREFIX)
+@Getter
+@Setter
+public class ItemProperties {
+
+	public static final String PREFIX = "ru.keich.mon.servicemanager.item";
+
+	/*
+	 * Reader threads per queue, and per queue in virtual mode.
+	 */
+	private int queueThreadNumber = 4;
+	private int queueVirtualThreadNumber = 64;
+	private int queueBatchSize = 100;
+	private long queueLingerMillis = 0;
+
+	/*
+	 * Threads that read the events of a subtree in parallel chunks.
+	 */
+	private int readThreadNumber = 8;
+
+	private Propagation propagation = new Propagation();
+
+	@Getter
+	@Setter
+	public static class Propagation {
+
+		private boolean leveled = true;
+		private long windowMillis = 20;
+
+	}
+
+}
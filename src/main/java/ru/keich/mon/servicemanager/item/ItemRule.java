@@ -2,6 +2,7 @@ package ru.keich.mon.servicemanager.item;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import ru.keich.mon.servicemanager.BaseStatus;
@@ -24,6 +25,7 @@ import ru.keich.mon.servicemanager.BaseStatus;
 
 @Getter
 @Setter
+@EqualsAndHashCode
 public class ItemRule {
 
 	private BaseStatus resultStatus = BaseStatus.INDETERMINATE;
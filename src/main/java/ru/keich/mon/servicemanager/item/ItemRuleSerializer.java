@@ -0,0 +1,58 @@
+package ru.keich.mon.servicemanager.item;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.CompactFields;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class ItemRuleSerializer implements CompactSerializer<ItemRule> {
+
+	@Override
+	public ItemRule read(CompactReader reader) {
+		var rule = new ItemRule();
+		rule.setResultStatus(BaseStatus.fromInteger(CompactFields.readInt32(reader, "resultStatus", BaseStatus.INDETERMINATE.ordinal())));
+		rule.setUsingResultStatus(CompactFields.readBoolean(reader, "usingResultStatus", false));
+		rule.setStatusThreshold(BaseStatus.fromInteger(CompactFields.readInt32(reader, "statusThreshold", BaseStatus.CLEAR.ordinal())));
+		rule.setValueThreshold(CompactFields.readInt32(reader, "valueThreshold", 0));
+		rule.setType(CompactFields.toEnum(ItemRule.RuleType.values(), CompactFields.readInt32(reader, "type", -1), null));
+		return rule;
+	}
+
+	@Override
+	public void write(CompactWriter writer, ItemRule object) {
+		writer.writeInt32("resultStatus", object.getResultStatus().ordinal());
+		writer.writeBoolean("usingResultStatus", object.isUsingResultStatus());
+		writer.writeInt32("statusThreshold", object.getStatusThreshold().ordinal());
+		writer.writeInt32("valueThreshold", object.getValueThreshold());
+		writer.writeInt32("type", CompactFields.ordinal(object.getType()));
+	}
+
+	@Override
+	public String getTypeName() {
+		return "ItemRule";
+	}
+
+	@Override
+	public Class<ItemRule> getCompactClass() {
+		return ItemRule.class;
+	}
+
+}
@@ -0,0 +1,99 @@
+package ru.keich.mon.servicemanager.item;
+
+import java.util.HashMap;
+import java.util.Objects;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.CompactFields;
+import ru.keich.mon.servicemanager.mapstatus.MapStatus;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The loaded children and parents trees are never stored.
+ */
+public class ItemSerializer implements CompactSerializer<Item> {
+
+	@Override
+	public Item read(CompactReader reader) {
+		var item = new Item(reader.readString("id"), reader.readString("source"), reader.readString("sourceKey"));
+		item.setCreatedOn(CompactFields.readTimestamp(reader, "createdOn", null));
+		item.setUpdatedOn(CompactFields.readTimestamp(reader, "updatedOn", null));
+		item.setFields(CompactFields.readStringMap(reader, "fields"));
+		item.setStatus(BaseStatus.fromInteger(CompactFields.readInt32(reader, "status", BaseStatus.CLEAR.ordinal())));
+		item.setRules(CompactFields.readCompactMap(reader, "rules", ItemRule.class));
+		item.setFilters(CompactFields.readCompactMap(reader, "filters", ItemFilter.class));
+		item.setChildrenIds(CompactFields.readStringArray(reader, "childrenIds"));
+		item.setHasChildren(CompactFields.readBoolean(reader, "hasChildren", false));
+		item.setName(CompactFields.readString(reader, "name", ""));
+		if (CompactFields.has(reader, "eventsStatus")) {
+			item.setEventsStatus(Objects.requireNonNullElseGet(reader.readCompact("eventsStatus"), MapStatus::new));
+		}
+		if (CompactFields.has(reader, "childStatus")) {
+			item.setChildStatus(Objects.requireNonNullElseGet(reader.readCompact("childStatus"), MapStatus::new));
+		}
+		item.setStatusVersion(CompactFields.readInt64(reader, "statusVersion", 0));
+		var childStatusVersion = new HashMap<String, Long>();
+		var keys = CompactFields.readStringArray(reader, "childStatusVersion" + CompactFields.KEYS);
+		if (keys.length > 0) {
+			var versions = reader.readArrayOfInt64("childStatusVersion" + CompactFields.VALUES);
+			for (int i = 0; i < keys.length; i++) {
+				childStatusVersion.put(keys[i], versions[i]);
+			}
+		}
+		item.setChildStatusVersion(childStatusVersion);
+		return item;
+	}
+
+	@Override
+	public void write(CompactWriter writer, Item object) {
+		writer.writeString("id", object.getId());
+		writer.writeString("source", object.getSource());
+		writer.writeString("sourceKey", object.getSourceKey());
+		CompactFields.writeTimestamp(writer, "createdOn", object.getCreatedOn());
+		CompactFields.writeTimestamp(writer, "updatedOn", object.getUpdatedOn());
+		CompactFields.writeStringMap(writer, "fields", object.getFields());
+		writer.writeInt32("status", object.getStatus().ordinal());
+		CompactFields.writeCompactMap(writer, "rules", object.getRules(), ItemRule[]::new);
+		CompactFields.writeCompactMap(writer, "filters", object.getFilters(), ItemFilter[]::new);
+		writer.writeArrayOfString("childrenIds", object.getChildrenIds());
+		writer.writeBoolean("hasChildren", object.isHasChildren());
+		writer.writeString("name", object.getName());
+		writer.writeCompact("eventsStatus", object.getEventsStatus());
+		writer.writeCompact("childStatus", object.getChildStatus());
+		writer.writeInt64("statusVersion", object.getStatusVersion());
+		var childStatusVersion = object.getChildStatusVersion();
+		writer.writeArrayOfString("childStatusVersion" + CompactFields.KEYS, childStatusVersion.keySet().toArray(String[]::new));
+		writer.writeArrayOfInt64("childStatusVersion" + CompactFields.VALUES,
+				childStatusVersion.values().stream().mapToLong(Long::longValue).toArray());
+	}
+
+	@Override
+	public String getTypeName() {
+		return "Item";
+	}
+
+	@Override
+	public Class<Item> getCompactClass() {
+		return Item.class;
+	}
+
+}
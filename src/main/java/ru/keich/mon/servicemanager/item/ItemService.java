@@ -1,29 +1,61 @@
 package ru.keich.mon.servicemanager.item;
 
-import java.util.ArrayDeque;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ForkJoinPool;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.hazelcast.core.EntryAdapter;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.ReadOnly;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
 import com.hazelcast.query.Predicate;
 import com.hazelcast.query.Predicates;
+import com.hazelcast.replicatedmap.ReplicatedMap;
+import com.hazelcast.topic.ITopic;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 import lombok.Getter;
 import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.CoalescingQueue;
 import ru.keich.mon.servicemanager.QueueThreadReader;
-import ru.keich.mon.servicemanager.StringKeyValue;
+import ru.keich.mon.servicemanager.entity.EntityProcessor;
 import ru.keich.mon.servicemanager.entity.EntityService;
 import ru.keich.mon.servicemanager.event.Event;
 import ru.keich.mon.servicemanager.event.EventService;
+import ru.keich.mon.servicemanager.query.Filter;
+import ru.keich.mon.servicemanager.query.Operator;
 
 /*
  * Copyright 2024 the original author or authors.
@@ -46,12 +78,23 @@ public class ItemService extends EntityService<String, Item> {
 	
 	public static final String NAME_ITEMS_MAP = "items";
 	
-	public static final String INDEX_FIELD_ALLEQUALFILTERS = "allFiltersEqualFields[any]";
-	public static final String INDEX_FIELD_CHILDREN = "childrenIds[any]";
 	public static final String INDEX_FIELD_ITEMTOEVENT = "events[keys]";
 	public static final String INDEX_FIELD_CHILDRENSTATUS = "children[keys]";
 	
 	public static final String QUEUE_ITEM_CHANGE_NAME = "queueItemChange";
+	public static final String NAME_ITEM_FILTERS_MAP = "itemFilters";
+	public static final String NAME_ITEM_PARENTS_MAP = "itemParents";
+	public static final String TOPIC_ITEM_STATUS_NAME = "itemStatus";
+
+	public static final int EVENTS_CHUNK_SIZE = 1000;
+	public static final String METRIC_MATCH = "servicemanager.item.match";
+	public static final String METRIC_CALCULATE_STATUS = "servicemanager.item.status.calculate";
+	public static final String METRIC_CHILDREN_CHANGED = "servicemanager.item.children.changed";
+	public static final String METRIC_EVENT_PROPAGATION = "servicemanager.event.propagation";
+	static final Timer MATCH_TIMER = Metrics.timer(METRIC_MATCH);
+	static final Timer CALCULATE_STATUS_TIMER = Metrics.timer(METRIC_CALCULATE_STATUS);
+	static final Timer CHILDREN_CHANGED_TIMER = Metrics.timer(METRIC_CHILDREN_CHANGED);
+	static final Timer PROPAGATION_TIMER = Metrics.timer(METRIC_EVENT_PROPAGATION);
 
 	
 	protected final QueueThreadReader<String> queueEventChange;
@@ -59,48 +102,412 @@ public class ItemService extends EntityService<String, Item> {
 	protected final QueueThreadReader<ParentChild> queueItemChange;
 
 	private final EventService eventService;
-	ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+	private final ReplicatedMap<String, Map<String, ItemFilter>> itemFilters;
+	private final ItemFilterIndex itemFilterIndex = new ItemFilterIndex();
+	private final IMap<String, String[]> itemParents;
+	private final ITopic<Map<String, ItemStatus>> itemStatusTopic;
+	private final long touchSeconds;
+	private final StatusPropagator statusPropagator;
+	private final ExecutorService readExecutor;
 	
 	public ItemService(HazelcastInstance hazelcastInstance,
 			EventService eventService,
-			@Value("${ru.keich.mon.servicemanager.item.queuethreadnumber:4}") Integer queueThredNumber) {
-		super(NAME_ITEMS_MAP, hazelcastInstance);
+			ItemProperties properties,
+			@Value("${ru.keich.mon.servicemanager.queue.virtualthreads:${spring.threads.virtual.enabled:false}}") Boolean queueVirtualThreads,
+			@Value("${ru.keich.mon.servicemanager.entity.upsertmode:PROCESSOR}") UpsertMode upsertMode,
+			@Value("${ru.keich.mon.servicemanager.queue.coalesce:true}") Boolean coalesce,
+			@Value("${ru.keich.mon.servicemanager.queue.pendingttlmillis:60000}") Long pendingTtlMillis,
+			@Value("${ru.keich.mon.servicemanager.entity.touchseconds:60}") Long touchSeconds) {
+		super(NAME_ITEMS_MAP, Item.class, hazelcastInstance, upsertMode);
 		this.eventService = eventService;
-		queueEventChange = new QueueThreadReader<String>(hazelcastInstance,
+		this.touchSeconds = touchSeconds;
+		itemParents = hazelcastInstance.getMap(NAME_ITEM_PARENTS_MAP);
+		itemStatusTopic = hazelcastInstance.getTopic(TOPIC_ITEM_STATUS_NAME);
+		itemFilters = hazelcastInstance.getReplicatedMap(NAME_ITEM_FILTERS_MAP);
+		itemFilters.addEntryListener(new ItemFiltersListener(itemFilterIndex));
+		itemFilters.forEach(itemFilterIndex::putIfAbsent);
+		var queueThreads = queueVirtualThreads && QueueThreadReader.isVirtualSupported()
+				? properties.getQueueVirtualThreadNumber()
+				: properties.getQueueThreadNumber();
+		queueEventChange = new QueueThreadReader<String>(
+				new CoalescingQueue<String>(hazelcastInstance, EventService.QUEUE_EVENT_CHANGE_NAME, coalesce,
+						Function.identity(), pendingTtlMillis),
 				EventService.QUEUE_EVENT_CHANGE_NAME,
-				queueThredNumber,
-				this::eventChanged);
-		queueEventRemoved = new QueueThreadReader<String>(hazelcastInstance,
+				queueThreads,
+				properties.getQueueBatchSize(),
+				properties.getQueueLingerMillis(),
+				queueVirtualThreads,
+				this::eventsChanged);
+		queueEventRemoved = new QueueThreadReader<String>(
+				new CoalescingQueue<String>(hazelcastInstance, EventService.QUEUE_EVENT_REMOVED_NAME, coalesce,
+						Function.identity(), pendingTtlMillis),
 				EventService.QUEUE_EVENT_REMOVED_NAME,
-				queueThredNumber,
-				this::eventRemoved);
-		queueItemChange = new QueueThreadReader<ParentChild>(hazelcastInstance,
+				queueThreads,
+				properties.getQueueBatchSize(),
+				properties.getQueueLingerMillis(),
+				queueVirtualThreads,
+				this::eventsRemoved);
+		queueItemChange = new QueueThreadReader<ParentChild>(
+				new CoalescingQueue<ParentChild>(hazelcastInstance, QUEUE_ITEM_CHANGE_NAME, coalesce,
+						ParentChild::getKey, pendingTtlMillis),
 				QUEUE_ITEM_CHANGE_NAME,
-				queueThredNumber,
-				this::childChanged);
+				queueThreads,
+				properties.getQueueBatchSize(),
+				properties.getQueueLingerMillis(),
+				queueVirtualThreads,
+				this::childrenChanged);
+		var propagation = properties.getPropagation();
+		statusPropagator = propagation.isLeveled() ? new StatusPropagator(this, propagation.getWindowMillis()) : null;
+		readExecutor = newExecutor(this.getClass().getName() + "-read", properties.getReadThreadNumber());
+	}
+
+	/*
+	 * Hazelcast calls block, so they get their own threads instead of
+	 * the common pool the streams and other callers share.
+	 */
+	static ExecutorService newExecutor(String name, int threadNumber) {
+		var counter = new AtomicInteger();
+		return Executors.newFixedThreadPool(Math.max(threadNumber, 1), runnable -> {
+			var thread = new Thread(runnable, name + "-" + counter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
 	}
 
 	@Override
 	public void addOrUpdate(Item item) {
-		var itemId = item.getId();
-		lock(itemId, () -> item, old -> {
+		var oldChildrenIds = process(item.getId(), new ItemUpsert(item, touchSeconds));
+		if (Objects.isNull(oldChildrenIds)) {
+			return;
+		}
+		putFilters(item);
+		updateParents(Map.of(item.getId(), oldChildrenIds), Map.of(item.getId(), item.getChildrenIds()));
+		queueItemChange.add(new ParentChild(item.getId(), ""));
+	}
+
+	@Override
+	public void addOrUpdate(List<Item> items) {
+		var processors = items.stream()
+				.collect(Collectors.toMap(Item::getId, item -> new ItemUpsert(item, touchSeconds), (a, b) -> b));
+		var oldChildrenIds = processAll(processors);
+		oldChildrenIds.values().removeIf(Objects::isNull);
+		if (oldChildrenIds.isEmpty()) {
+			return;
+		}
+		var changed = oldChildrenIds.keySet().stream()
+				.map(processors::get)
+				.map(upsert -> upsert.item)
+				.toList();
+		changed.forEach(this::putFilters);
+		updateParents(oldChildrenIds, changed.stream()
+				.collect(Collectors.toMap(Item::getId, Item::getChildrenIds)));
+		queueItemChange.addAll(changed.stream()
+				.map(item -> new ParentChild(item.getId(), ""))
+				.toList());
+	}
+
+	/*
+	 * The local index is updated at once, other members
+	 * follow through the replicated map listener.
+	 */
+	private void putFilters(Item item) {
+		if (item.getFilters().isEmpty()) {
+			itemFilterIndex.remove(item.getId());
+			itemFilters.remove(item.getId());
+		} else {
+			var filters = new LinkedHashMap<String, ItemFilter>(item.getFilters());
+			itemFilterIndex.put(item.getId(), filters);
+			itemFilters.put(item.getId(), filters);
+		}
+	}
+
+	private static class ItemFiltersListener extends EntryAdapter<String, Map<String, ItemFilter>> {
+
+		private final ItemFilterIndex itemFilterIndex;
+
+		public ItemFiltersListener(ItemFilterIndex itemFilterIndex) {
+			super();
+			this.itemFilterIndex = itemFilterIndex;
+		}
+
+		@Override
+		public void entryAdded(EntryEvent<String, Map<String, ItemFilter>> event) {
+			itemFilterIndex.put(event.getKey(), event.getValue());
+		}
+
+		@Override
+		public void entryUpdated(EntryEvent<String, Map<String, ItemFilter>> event) {
+			itemFilterIndex.put(event.getKey(), event.getValue());
+		}
+
+		@Override
+		public void entryRemoved(EntryEvent<String, Map<String, ItemFilter>> event) {
+			itemFilterIndex.remove(event.getKey());
+		}
+
+	}
+
+	/*
+	 * Parents of an item are kept by child id in the itemParents map,
+	 * only the children in the difference between the old and the new
+	 * children ids are updated.
+	 */
+	private void updateParents(Map<String, String[]> oldChildrenIds, Map<String, String[]> newChildrenIds) {
+		var changed = new HashMap<String, Set<String>>();
+		newChildrenIds.forEach((parentId, childrenIds) -> {
+			var oldIds = new HashSet<String>(Arrays.asList(oldChildrenIds.getOrDefault(parentId, new String[0])));
+			var newIds = new HashSet<String>(Arrays.asList(childrenIds));
+			newIds.stream()
+					.filter(childId -> !oldIds.remove(childId))
+					.forEach(childId -> changed.computeIfAbsent(childId, k -> new HashSet<String>()).add(parentId));
+			oldIds.forEach(childId -> changed.computeIfAbsent(childId, k -> new HashSet<String>()).add(parentId));
+		});
+		repairParents(changed);
+	}
+
+	/*
+	 * Sets every child to parent edge of the given ones to what the
+	 * parent lists when it is read here, after the caller wrote it.
+	 * Concurrent upserts of one parent then agree on the last state
+	 * instead of applying their differences in any order. Returns the
+	 * number of children whose parents changed.
+	 */
+	int repairParents(Map<String, Set<String>> parentIdsByChild) {
+		if (parentIdsByChild.isEmpty()) {
+			return 0;
+		}
+		var parentIds = parentIdsByChild.values()
+				.stream()
+				.flatMap(Set::stream)
+				.collect(Collectors.toSet());
+		var parents = map.executeOnKeys(parentIds, new ItemLinksRead());
+		var updates = new HashMap<String, ParentsUpdate>();
+		parentIdsByChild.forEach((childId, ids) -> ids.forEach(parentId -> {
+			var update = updates.computeIfAbsent(childId, k -> new ParentsUpdate());
+			var links = parents.get(parentId);
+			if (Objects.nonNull(links) && Arrays.asList(links.getChildrenIds()).contains(childId)) {
+				update.add(parentId);
+			} else {
+				update.remove(parentId);
+			}
+		}));
+		return (int) updates.entrySet()
+				.stream()
+				.map(e -> itemParents.submitToKey(e.getKey(), e.getValue()).toCompletableFuture())
+				.toList()
+				.stream()
+				.map(CompletableFuture::join)
+				.filter(Boolean::booleanValue)
+				.count();
+	}
+
+	Map<String, String[]> findAllParents() {
+		return new HashMap<String, String[]>(itemParents);
+	}
+
+	static class ParentsUpdate implements EntryProcessor<String, String[], Boolean>, DataSerializable {
+
+		private Set<String> added = new HashSet<String>();
+		private Set<String> removed = new HashSet<String>();
+
+		public ParentsUpdate() {
+			super();
+		}
+
+		public ParentsUpdate add(String parentId) {
+			added.add(parentId);
+			removed.remove(parentId);
+			return this;
+		}
+
+		public ParentsUpdate remove(String parentId) {
+			removed.add(parentId);
+			added.remove(parentId);
+			return this;
+		}
+
+		@Override
+		public Boolean process(Map.Entry<String, String[]> entry) {
+			var parentIds = new LinkedHashSet<String>(Arrays.asList(Optional.ofNullable(entry.getValue())
+					.orElse(new String[0])));
+			var changed = parentIds.removeAll(removed);
+			changed |= parentIds.addAll(added);
+			if (changed) {
+				entry.setValue(parentIds.isEmpty() ? null : parentIds.toArray(String[]::new));
+			}
+			return changed;
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeStringArray(added.toArray(String[]::new));
+			out.writeStringArray(removed.toArray(String[]::new));
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			added = new HashSet<String>(Arrays.asList(in.readStringArray()));
+			removed = new HashSet<String>(Arrays.asList(in.readStringArray()));
+		}
+
+	}
+
+	/*
+	 * Returns the old children ids, the item parents index is
+	 * updated by the caller. A new item starts its status version at
+	 * the creation time, VERSIONS_PER_MILLI versions per millisecond,
+	 * so the versions of a recreated item stay above the removal
+	 * message of the item it replaces.
+	 */
+	static class ItemUpsert implements EntryProcessor<String, Item, String[]>, DataSerializable {
+
+		static final long VERSIONS_PER_MILLI = 1000;
+
+		private Item item;
+		private long touchSeconds;
+		private long firstVersion;
+
+		public ItemUpsert() {
+			super();
+		}
+
+		public ItemUpsert(Item item, long touchSeconds) {
+			super();
+			this.item = item;
+			this.touchSeconds = touchSeconds;
+			this.firstVersion = System.currentTimeMillis() * VERSIONS_PER_MILLI;
+		}
+
+		/*
+		 * Returns null for an unchanged item, it is not written
+		 * again and nothing is recalculated, only the update time
+		 * is touched.
+		 */
+		@Override
+		public String[] process(Map.Entry<String, Item> entry) {
+			var old = entry.getValue();
+			if (Objects.nonNull(old) && isSame(old, item)) {
+				if (EntityProcessor.isTouchDue(old.getUpdatedOn(), item.getUpdatedOn(), touchSeconds)) {
+					old.setUpdatedOn(item.getUpdatedOn());
+					entry.setValue(old);
+				}
+				return null;
+			}
+			if (Objects.nonNull(old)) {
+				update(old);
+			} else {
+				item.setStatusVersion(firstVersion);
+			}
+			entry.setValue(item);
+			return Objects.isNull(old) ? new String[0] : old.getChildrenIds();
+		}
+
+		static boolean isSame(Item old, Item item) {
+			return Objects.equals(old.getSource(), item.getSource())
+					&& Objects.equals(old.getSourceKey(), item.getSourceKey())
+					&& Objects.equals(old.getName(), item.getName())
+					&& Arrays.equals(old.getChildrenIds(), item.getChildrenIds())
+					&& Objects.equals(old.getFields(), item.getFields())
+					&& Objects.equals(old.getRules(), item.getRules())
+					&& Objects.equals(old.getFilters(), item.getFilters());
+		}
+
+		private void update(Item old) {
 			item.setStatus(old.getStatus());
+			item.setStatusVersion(old.getStatusVersion());
 			item.setCreatedOn(old.getCreatedOn());
 			item.setEventsStatus(old.getEventsStatus());
 			item.setChildStatus(old.getChildStatus());
-			return item;
-		});
-		queueItemChange.add(new ParentChild(item.getId(), ""));
+			item.setChildStatusVersion(old.getChildStatusVersion());
+			if (!Arrays.equals(item.getChildrenIds(), old.getChildrenIds())) {
+				var childIds = new HashSet<String>(Arrays.asList(item.getChildrenIds()));
+				new HashSet<String>(item.getChildStatus().keySet()).stream()
+						.filter(childId -> !childIds.contains(childId))
+						.forEach(childId -> {
+							item.getChildStatus().remove(childId);
+							item.getChildStatusVersion().remove(childId);
+						});
+			}
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeObject(item);
+			out.writeLong(touchSeconds);
+			out.writeLong(firstVersion);
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			item = in.readObject();
+			touchSeconds = in.readLong();
+			firstVersion = in.readLong();
+		}
+
 	}
 
 	@Override
 	protected Item entityRemoved(Item item) {
-		findParentIdsById(item.getId()).stream()
-				.map(parentId -> new ParentChild(parentId, ""))
-				.forEach(queueItemChange::add);
+		itemFilterIndex.remove(item.getId());
+		itemFilters.remove(item.getId());
+		updateParents(Map.of(item.getId(), item.getChildrenIds()), Map.of(item.getId(), new String[0]));
+		var removed = new ItemStatus(null, item.getStatusVersion() + 1);
+		publishStatus(Map.of(item.getId(), removed));
+		queueItemChange.addAll(findParentIdsById(item.getId()).stream()
+				.map(parentId -> new ParentChild(parentId, item.getId(), removed))
+				.toList());
 		return item;
 	}
 
+	/*
+	 * Rebuilds after a restart what is not stored: the filter index and
+	 * the parents of the items. Derived statuses are stored with the
+	 * items, only the differences are queued: events written since the
+	 * items were stored, removed events and children statuses the
+	 * parents have not seen.
+	 */
+	public void recover(Optional<LocalDateTime> since) {
+		var ids = new ArrayList<String>(map.keySet());
+		var statuses = new HashMap<String, ItemStatus>(ids.size());
+		var childVersions = new HashMap<String, Map<String, Long>>();
+		for (int from = 0; from < ids.size(); from += EVENTS_CHUNK_SIZE) {
+			var items = findByIds(new HashSet<String>(ids.subList(from, Math.min(from + EVENTS_CHUNK_SIZE, ids.size()))))
+					.values();
+			items.forEach(this::putFilters);
+			updateParents(Collections.emptyMap(), items.stream()
+					.collect(Collectors.toMap(Item::getId, Item::getChildrenIds)));
+			var eventIds = items.stream()
+					.flatMap(item -> item.getEventsStatus().keySet().stream())
+					.collect(Collectors.toSet());
+			var found = eventService.findByIds(eventIds, Set.of(FIELD_ID));
+			eventIds.removeIf(eventId -> Objects.nonNull(found.get(eventId)));
+			queueEventRemoved.addAll(new ArrayList<String>(eventIds));
+			items.forEach(item -> {
+				statuses.put(item.getId(), new ItemStatus(item.getStatus(), item.getStatusVersion()));
+				var versions = new HashMap<String, Long>(item.getChildStatusVersion());
+				Arrays.stream(item.getChildrenIds()).forEach(childId -> versions.putIfAbsent(childId, -1L));
+				childVersions.put(item.getId(), versions);
+			});
+		}
+		queueItemChange.addAll(childVersions.entrySet()
+				.stream()
+				.flatMap(e -> e.getValue().entrySet().stream().map(child -> {
+					var status = statuses.get(child.getKey());
+					if (Objects.isNull(status)) {
+						return child.getValue() < 0 ? null
+								: new ParentChild(e.getKey(), child.getKey(), new ItemStatus(null, child.getValue() + 1));
+					}
+					if (status.getVersion() == child.getValue()) {
+						return null;
+					}
+					return new ParentChild(e.getKey(), child.getKey(), status);
+				}))
+				.filter(Objects::nonNull)
+				.toList());
+		since.ifPresent(dateTime -> queueEventChange.addAll(eventService.queryKeys(List.of(
+				new Filter(FIELD_UPDATEDON, Operator.GT, dateTime.toString())))));
+	}
+
 	static public <T> Predicate<String, Item> getPredicateEqual(String field, Comparable<T> k) {
 		return Predicates.equal(field, k);
 	}
@@ -109,171 +516,739 @@ public class ItemService extends EntityService<String, Item> {
 	static class EventItemFilter {
 
 		Event event;
-		Item item;
+		String itemId;
 		ItemFilter filter;
 
-		public EventItemFilter(Event event, Item item, ItemFilter filter) {
+		public EventItemFilter(Event event, String itemId, ItemFilter filter) {
 			super();
 			this.event = event;
-			this.item = item;
+			this.itemId = itemId;
 			this.filter = filter;
 		}
 
 	}
 	
-	private List<EventItemFilter> findFiltersByEqualFields(Event event) {
-		var fields = event.getFields();
-		return fields.entrySet()
+	List<EventItemFilter> findFiltersByEqualFields(Event event) {
+		return MATCH_TIMER.record(() -> itemFilterIndex.match(event.getFields())
+				.entrySet()
 				.stream()
-				.map(StringKeyValue::new)
-				.map(kv -> getPredicateEqual(INDEX_FIELD_ALLEQUALFILTERS, kv))
-				.flatMap(p -> map.values(p).stream())
-				.distinct()
-				.map(item -> {
-					return item.getFilters()
-							.entrySet()
-							.stream()
-							.filter(flt -> fields.entrySet().containsAll(flt.getValue().getEqualFields().entrySet()))
-							.findFirst()
-							.map(e -> new EventItemFilter(event, item, e.getValue()));
-				})
-				.filter(Optional::isPresent)
-				.map(Optional::get)
-				.collect(Collectors.toList());
+				.map(e -> new EventItemFilter(event, e.getKey(), e.getValue()))
+				.toList());
 	}
 
 	public List<String> findParentIdsById(String itemId) {
-		return map.keySet(Predicates.equal(INDEX_FIELD_CHILDREN, itemId))
+		return Arrays.asList(Optional.ofNullable(itemParents.get(itemId)).orElse(new String[0]));
+	}
+
+	public Map<String, String[]> findParentIdsByIds(Set<String> itemIds) {
+		return itemParents.getAll(itemIds);
+	}
+
+	public Optional<Item> findTreeById(String itemId, int depth, int limit) {
+		return findTree(itemId, depth, limit, items -> items.stream()
+				.collect(Collectors.toMap(Item::getId, item -> Arrays.asList(item.getChildrenIds()), (a, b) -> a)),
+				Item::setChildren);
+	}
+
+	public Optional<Item> findParentsTreeById(String itemId, int depth, int limit) {
+		return findTree(itemId, depth, limit, items -> findParentIdsByIds(items.stream()
+				.map(Item::getId)
+				.collect(Collectors.toSet()))
+				.entrySet()
 				.stream()
-				.collect(Collectors.toList());
+				.collect(Collectors.toMap(Map.Entry::getKey, e -> Arrays.asList(e.getValue()))),
+				Item::setParents);
 	}
 
-	private Set<String> findEventIdsById(String parentId) {
-		var out = new HashSet<String>();
-		var history = new HashSet<String>();
-		var queue = new ArrayDeque<String>();
-		queue.add(parentId);
-		while (!queue.isEmpty()) {
-			final var itemId = queue.poll();
-			if (history.contains(itemId)) {
+	/*
+	 * Walks the graph level by level with one getAll per level. An item
+	 * is expanded once, at its shortest depth, and an item met again is
+	 * attached as that same expanded instance, so a shared child shows
+	 * its subtree under every parent. Depth counts the levels under the
+	 * root, limit caps the number of distinct items in the tree.
+	 */
+	private Optional<Item> findTree(String itemId, int depth, int limit,
+			Function<List<Item>, Map<String, List<String>>> related, BiConsumer<Item, List<Item>> attach) {
+		var root = findById(itemId);
+		if (Objects.isNull(root)) {
+			return Optional.empty();
+		}
+		var expanded = new HashMap<String, Item>();
+		var edges = new HashMap<String, List<TreeEdge>>();
+		expanded.put(root.getId(), root);
+		var frontier = List.of(root);
+		var count = 1;
+		for (int level = 0; level < depth && !frontier.isEmpty() && count < limit; level++) {
+			var relatedIds = related.apply(frontier);
+			var items = findByIds(relatedIds.values()
+					.stream()
+					.flatMap(List::stream)
+					.collect(Collectors.toSet()));
+			var next = new ArrayList<Item>();
+			for (var item : frontier) {
+				var itemEdges = new ArrayList<TreeEdge>();
+				edges.put(item.getId(), itemEdges);
+				for (var id : relatedIds.getOrDefault(item.getId(), Collections.emptyList())) {
+					var found = items.get(id);
+					if (expanded.containsKey(id)) {
+						itemEdges.add(new TreeEdge(id, found));
+					} else if (Objects.nonNull(found) && count < limit) {
+						count++;
+						expanded.put(id, found);
+						itemEdges.add(new TreeEdge(id, found));
+						next.add(found);
+					}
+				}
+			}
+			frontier = next;
+		}
+		attachTree(root, expanded, edges, attach);
+		return Optional.of(root);
+	}
+
+	/*
+	 * An edge to an item read again, kept as the childless copy
+	 * for the case the edge closes a cycle.
+	 */
+	private static class TreeEdge {
+
+		final String id;
+		final Item copy;
+
+		public TreeEdge(String id, Item copy) {
+			super();
+			this.id = id;
+			this.copy = copy;
+		}
+
+	}
+
+	/*
+	 * One depth first pass from the root. An edge back to an item on
+	 * the current path would close a cycle, it gets the childless copy,
+	 * every other edge gets the expanded instance.
+	 */
+	private static void attachTree(Item root, Map<String, Item> expanded, Map<String, List<TreeEdge>> edges,
+			BiConsumer<Item, List<Item>> attach) {
+		var onPath = new HashSet<String>();
+		var visited = new HashSet<String>();
+		var path = new ArrayList<Item>();
+		var positions = new ArrayList<Integer>();
+		var attached = new ArrayList<List<Item>>();
+		path.add(root);
+		positions.add(0);
+		attached.add(new ArrayList<Item>());
+		onPath.add(root.getId());
+		visited.add(root.getId());
+		while (!path.isEmpty()) {
+			var last = path.size() - 1;
+			var item = path.get(last);
+			var itemEdges = edges.getOrDefault(item.getId(), Collections.emptyList());
+			var position = positions.get(last);
+			if (position == itemEdges.size()) {
+				if (edges.containsKey(item.getId())) {
+					attach.accept(item, attached.get(last));
+				}
+				onPath.remove(item.getId());
+				path.remove(last);
+				positions.remove(last);
+				attached.remove(last);
 				continue;
 			}
-			history.add(itemId);
-			var item = map.get(itemId);
-			if(Objects.isNull(item)) {
+			positions.set(last, position + 1);
+			var edge = itemEdges.get(position);
+			var child = expanded.get(edge.id);
+			if (onPath.contains(edge.id)) {
+				if (Objects.nonNull(edge.copy) && edge.copy != child) {
+					attached.get(last).add(edge.copy);
+				}
 				continue;
 			}
-			var eventIds = item.getEventsStatus().keySet();
-			out.addAll(eventIds);
-			for(var childId: item.getChildrenIds()) {
-				queue.add(childId);
-			};
+			attached.get(last).add(child);
+			if (visited.add(edge.id)) {
+				path.add(child);
+				positions.add(0);
+				attached.add(new ArrayList<Item>());
+				onPath.add(edge.id);
+			}
 		}
+	}
+
+	/*
+	 * Every level of the subtree is read with one call, the members
+	 * return only the children ids and the event ids of the items.
+	 */
+	public Set<String> findAllEventIdsById(String parentId) {
+		var out = new HashSet<String>();
+		walkSubtree(parentId, links -> out.addAll(Arrays.asList(links.getEventIds())));
 		return out;
 	}
 
+	/*
+	 * Ids of the existing items of the subtree, the root included.
+	 */
+	public Set<String> findSubtreeIdsById(String parentId) {
+		return walkSubtree(parentId, links -> {});
+	}
+
+	private Set<String> walkSubtree(String parentId, Consumer<ItemLinks> visitor) {
+		var found = new HashSet<String>();
+		var history = new HashSet<String>();
+		Set<String> frontier = Set.of(parentId);
+		while (!frontier.isEmpty()) {
+			history.addAll(frontier);
+			frontier = map.executeOnKeys(frontier, new ItemLinksRead())
+					.entrySet()
+					.stream()
+					.filter(e -> Objects.nonNull(e.getValue()))
+					.flatMap(e -> {
+						found.add(e.getKey());
+						visitor.accept(e.getValue());
+						return Arrays.stream(e.getValue().getChildrenIds());
+					})
+					.filter(childId -> !history.contains(childId))
+					.collect(Collectors.toSet());
+		}
+		return found;
+	}
+
 	public List<Event> findAllEventsById(String itemId) {
-		return findEventIdsById(itemId).stream()
-				.map(eventService::findById)
-				.filter(Objects::nonNull)
+		var eventIds = new ArrayList<String>(findAllEventIdsById(itemId));
+		var futures = new ArrayList<CompletableFuture<Collection<Event>>>();
+		for (int from = 0; from < eventIds.size(); from += EVENTS_CHUNK_SIZE) {
+			var chunk = new HashSet<String>(eventIds.subList(from, Math.min(from + EVENTS_CHUNK_SIZE, eventIds.size())));
+			futures.add(CompletableFuture.supplyAsync(() -> eventService.findByIds(chunk).values(), readExecutor));
+		}
+		return futures.stream()
+				.map(CompletableFuture::join)
+				.flatMap(Collection::stream)
 				.toList();
 	}
-	
-	private Set<String> findItemIdsByEventId(String eventId) {
-		var p = getPredicateEqual(INDEX_FIELD_ITEMTOEVENT, eventId);
-		return map.keySet(p);
+
+	@Getter
+	static class ItemLinks implements DataSerializable {
+
+		private String[] childrenIds;
+		private String[] eventIds;
+
+		public ItemLinks() {
+			super();
+		}
+
+		public ItemLinks(String[] childrenIds, String[] eventIds) {
+			super();
+			this.childrenIds = childrenIds;
+			this.eventIds = eventIds;
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeStringArray(childrenIds);
+			out.writeStringArray(eventIds);
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			childrenIds = in.readStringArray();
+			eventIds = in.readStringArray();
+		}
+
+	}
+
+	static class ItemLinksRead implements EntryProcessor<String, Item, ItemLinks>, ReadOnly {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public ItemLinks process(Map.Entry<String, Item> entry) {
+			var item = entry.getValue();
+			if (Objects.isNull(item)) {
+				return null;
+			}
+			return new ItemLinks(item.getChildrenIds(), item.getEventsStatus().keySet().toArray(String[]::new));
+		}
+
+		@Override
+		public EntryProcessor<String, Item, ItemLinks> getBackupProcessor() {
+			return null;
+		}
+
 	}
 	
-	private void addEventToItem(EventItemFilter eventItemFilter) {
-		var filter = eventItemFilter.getFilter();
-		var event = eventItemFilter.getEvent();
-		var itemId = eventItemFilter.getItem().getId();
-		var status = filter.isUsingResultStatus() ? filter.getResultStatus() : event.getStatus();
-		lock(itemId, item -> {
-			item.getEventsStatus().put(event.getId(), status);
+	private void pushForUpdate(Set<String> itemIds) {
+		if (Objects.nonNull(statusPropagator)) {
+			statusPropagator.recalculate(itemIds);
+			return;
+		}
+		queueItemChange.addAll(itemIds.stream()
+				.map(itemId -> new ParentChild(itemId, ""))
+				.toList());
+	}
+
+	private void addEventsToItems(List<EventItemFilter> eventItemFilters) {
+		var statuses = new HashMap<String, Map<String, BaseStatus>>();
+		eventItemFilters.forEach(eventItemFilter -> {
+			var filter = eventItemFilter.getFilter();
+			var event = eventItemFilter.getEvent();
+			var status = filter.isUsingResultStatus() ? filter.getResultStatus() : event.getStatus();
+			statuses.computeIfAbsent(eventItemFilter.getItemId(), k -> new HashMap<String, BaseStatus>())
+					.put(event.getId(), status);
+		});
+		var processors = statuses.entrySet()
+				.stream()
+				.collect(Collectors.toMap(Map.Entry::getKey, e -> new EventStatusPut(e.getValue())));
+		processAll(processors, this::pushForUpdate);
+	}
+
+	static class EventStatusPut extends EntityProcessor<String, Item> {
+
+		private Map<String, BaseStatus> statuses;
+
+		public EventStatusPut() {
+			super();
+		}
+
+		public EventStatusPut(Map<String, BaseStatus> statuses) {
+			super();
+			this.statuses = statuses;
+		}
+
+		@Override
+		protected Optional<Item> update(Item item) {
+			statuses.forEach(item.getEventsStatus()::put);
 			return Optional.of(item);
-		}, id -> queueItemChange.add(new ParentChild(id, "")));
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeInt(statuses.size());
+			for (var e : statuses.entrySet()) {
+				out.writeString(e.getKey());
+				out.writeInt(e.getValue().ordinal());
+			}
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			var size = in.readInt();
+			statuses = new HashMap<String, BaseStatus>(size);
+			for (int i = 0; i < size; i++) {
+				statuses.put(in.readString(), BaseStatus.fromInteger(in.readInt()));
+			}
+		}
+
 	}
-	
-	private void removeEventFromItem(String itemId, String eventId) {
-		lock(itemId, item -> {
-			return Optional.of(item.getEventsStatus().remove(eventId)).map(b -> item);
-		}, id -> queueItemChange.add(new ParentChild(id, "")));
+
+	static class EventStatusRemove extends EntityProcessor<String, Item> {
+
+		private Set<String> eventIds;
+
+		public EventStatusRemove() {
+			super();
+		}
+
+		public EventStatusRemove(Set<String> eventIds) {
+			super();
+			this.eventIds = eventIds;
+		}
+
+		@Override
+		protected Optional<Item> update(Item item) {
+			var removed = false;
+			for (var eventId : eventIds) {
+				removed |= Objects.nonNull(item.getEventsStatus().remove(eventId));
+			}
+			return removed ? Optional.of(item) : Optional.empty();
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeStringArray(eventIds.toArray(String[]::new));
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			eventIds = new HashSet<String>(Arrays.asList(in.readStringArray()));
+		}
+
 	}
-	
-	
-	private void eventChanged(String eventId) {
-		Optional.ofNullable(eventService.findById(eventId))
-				.ifPresent(event -> {
-					findFiltersByEqualFields(event).forEach(this::addEventToItem);
-				});
+
+	/*
+	 * Propagation latency runs from the event write to the moment
+	 * its status is applied to the matched items.
+	 */
+	private void eventsChanged(List<String> eventIds) {
+		var events = eventService.findByIds(new HashSet<String>(eventIds)).values();
+		var eventItemFilters = events.stream()
+				.flatMap(event -> findFiltersByEqualFields(event).stream())
+				.toList();
+		addEventsToItems(eventItemFilters);
+		var now = LocalDateTime.now();
+		events.stream()
+				.map(Event::getUpdatedOn)
+				.filter(Objects::nonNull)
+				.forEach(updatedOn -> PROPAGATION_TIMER.record(Duration.between(updatedOn, now)));
 	}
-	
-	private void eventRemoved(String eventId) {
-		findItemIdsByEventId(eventId).stream().forEach(itemId -> removeEventFromItem(itemId, eventId));
+
+	private void eventsRemoved(List<String> eventIds) {
+		var ids = new HashSet<String>(eventIds);
+		var p = Predicates.<String, Item>in(INDEX_FIELD_ITEMTOEVENT, ids.toArray(String[]::new));
+		processAll(p, new EventStatusRemove(ids), this::pushForUpdate);
 	}
 	
+	/*
+	 * Status message of an item, the version grows with every status
+	 * change of the item. A null status means the item was removed.
+	 */
+	@Getter
+	static class ItemStatus implements Comparable<ItemStatus>, DataSerializable {
+
+		BaseStatus status;
+		long version;
+
+		public ItemStatus() {
+			super();
+		}
+
+		public ItemStatus(BaseStatus status, long version) {
+			super();
+			this.status = status;
+			this.version = version;
+		}
+
+		@Override
+		public int compareTo(ItemStatus o) {
+			return Long.compare(version, o.version);
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeInt(Objects.isNull(status) ? -1 : status.ordinal());
+			out.writeLong(version);
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			var ordinal = in.readInt();
+			status = ordinal < 0 ? null : BaseStatus.fromInteger(ordinal);
+			version = in.readLong();
+		}
+
+	}
+
+	static class ItemStatusRead implements EntryProcessor<String, Item, ItemStatus>, ReadOnly {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public ItemStatus process(Map.Entry<String, Item> entry) {
+			var item = entry.getValue();
+			if (Objects.isNull(item)) {
+				return null;
+			}
+			return new ItemStatus(item.getStatus(), item.getStatusVersion());
+		}
+
+		@Override
+		public EntryProcessor<String, Item, ItemStatus> getBackupProcessor() {
+			return null;
+		}
+
+	}
+
+	public Map<String, ItemStatus> findStatusByIds(Set<String> itemIds) {
+		var out = new HashMap<String, ItemStatus>(map.executeOnKeys(itemIds, new ItemStatusRead()));
+		out.values().removeIf(Objects::isNull);
+		return out;
+	}
+
+	/*
+	 * Status changes of the items, published by the member that
+	 * applied them and delivered to the listeners of every member.
+	 */
+	public UUID addStatusListener(Consumer<Map<String, ItemStatus>> listener) {
+		return itemStatusTopic.addMessageListener(message -> listener.accept(message.getMessageObject()));
+	}
+
+	public boolean removeStatusListener(UUID registrationId) {
+		return itemStatusTopic.removeMessageListener(registrationId);
+	}
+
+	private void publishStatus(Map<String, ItemStatus> statuses) {
+		if (!statuses.isEmpty()) {
+			itemStatusTopic.publishAsync(new HashMap<String, ItemStatus>(statuses));
+		}
+	}
+
+	/*
+	 * An empty child id asks to recalculate the parent, otherwise
+	 * the message carries the new status of the child.
+	 */
 	@Getter
-	private static class ParentChild {
+	private static class ParentChild implements Comparable<ParentChild> {
 		
 		String parentId;
 		String childId;
+		BaseStatus status;
+		long version;
 		
 		public ParentChild(String parentId, String childId) {
 			super();
 			this.parentId = parentId;
 			this.childId = childId;
 		}
+
+		public ParentChild(String parentId, String childId, ItemStatus childStatus) {
+			this(parentId, childId);
+			this.status = childStatus.getStatus();
+			this.version = childStatus.getVersion();
+		}
+
+		/*
+		 * Coalescing key, the length prefix keeps it unambiguous
+		 * whatever characters the ids contain.
+		 */
+		public String getKey() {
+			return parentId.length() + ":" + parentId + childId;
+		}
+
+		@Override
+		public int compareTo(ParentChild o) {
+			return Long.compare(version, o.version);
+		}
 		
 	}
 
-	private void pushParentsForUpdate(String childId) {
-		findParentIdsById(childId).stream()
-				.map(parentId -> new ParentChild(parentId, childId))
-				.forEach(queueItemChange::add);
+	private void pushParentsForUpdate(Map<String, ItemStatus> childStatuses) {
+		var changed = childStatuses.entrySet()
+				.stream()
+				.filter(e -> Objects.nonNull(e.getValue()))
+				.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+		if (changed.isEmpty()) {
+			return;
+		}
+		if (Objects.nonNull(statusPropagator)) {
+			statusPropagator.childrenChanged(changed);
+			return;
+		}
+		queueItemChange.addAll(findParentIdsByIds(changed.keySet()).entrySet()
+				.stream()
+				.flatMap(e -> Arrays.stream(e.getValue())
+						.map(parentId -> new ParentChild(parentId, e.getKey(), changed.get(e.getKey()))))
+				.toList());
+	}
+
+	/*
+	 * Messages are grouped by parent, so every parent is written once
+	 * per batch. Children statuses come with the messages.
+	 */
+	private void childrenChanged(List<ParentChild> infos) {
+		CHILDREN_CHANGED_TIMER.record(() -> applyChildrenChanged(infos));
 	}
-	
-	private void childChanged(ParentChild info) {
-		var parentId = info.getParentId();
-		var childId = info.getChildId();
-		lock(parentId, parent -> {
+
+	private void applyChildrenChanged(List<ParentChild> infos) {
+		var statuses = new HashMap<String, Map<String, ItemStatus>>();
+		infos.forEach(info -> {
+			var childStatus = statuses.computeIfAbsent(info.getParentId(), k -> new HashMap<String, ItemStatus>());
+			var childId = info.getChildId();
 			if (!"".equals(childId)) {
-				var child = findById(childId);
-				parent.getChildStatus().put(childId, child.getStatus());
+				childStatus.put(childId, new ItemStatus(info.getStatus(), info.getVersion()));
+			}
+		});
+		var processors = statuses.entrySet()
+				.stream()
+				.collect(Collectors.toMap(Map.Entry::getKey, e -> {
+					return e.getValue().isEmpty() ? new StatusCalculate() : new ChildStatusPut(e.getValue());
+				}));
+		applyStatusProcessors(processors, true);
+	}
+
+	/*
+	 * Returns the new statuses of the changed items, the parents are
+	 * told only with pushParents.
+	 */
+	Map<String, ItemStatus> applyStatusProcessors(Map<String, ? extends StatusProcessor> processors,
+			boolean pushParents) {
+		var changed = processAll(processors);
+		changed.values().removeIf(Objects::isNull);
+		publishStatus(changed);
+		if (pushParents) {
+			pushParentsForUpdate(changed);
+		}
+		return changed;
+	}
+
+	Map<String, ItemLinks> findAllLinks() {
+		return map.executeOnEntries(new ItemLinksRead());
+	}
+
+	/*
+	 * The events are queued even when they are pending, the pending
+	 * key may be the one that was lost.
+	 */
+	void requeueEvents(Collection<String> changedIds, Collection<String> removedIds) {
+		queueEventChange.requeueAll(new ArrayList<String>(changedIds));
+		queueEventRemoved.requeueAll(new ArrayList<String>(removedIds));
+	}
+
+	/*
+	 * Writes the item when update returns true. The result is the
+	 * message for the parents, or null when the status is the same.
+	 */
+	static abstract class StatusProcessor implements EntryProcessor<String, Item, ItemStatus>, DataSerializable {
+
+		protected abstract boolean update(Item item);
+
+		@Override
+		public ItemStatus process(Map.Entry<String, Item> entry) {
+			var item = entry.getValue();
+			if (Objects.isNull(item)) {
+				return null;
+			}
+			var version = item.getStatusVersion();
+			if (!update(item)) {
+				return null;
+			}
+			entry.setValue(item);
+			if (item.getStatusVersion() == version) {
+				return null;
+			}
+			return new ItemStatus(item.getStatus(), item.getStatusVersion());
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+
+		}
+
+	}
+
+	static class StatusCalculate extends StatusProcessor {
+
+		@Override
+		protected boolean update(Item item) {
+			return calculateStatus(item).isPresent();
+		}
+
+	}
+
+	/*
+	 * Messages older than the known version of the child are dropped.
+	 * A child unknown to the parent is accepted only when it is still
+	 * in the parent children ids.
+	 */
+	static class ChildStatusPut extends StatusProcessor {
+
+		private Map<String, ItemStatus> statuses;
+
+		public ChildStatusPut() {
+			super();
+		}
+
+		public ChildStatusPut(Map<String, ItemStatus> statuses) {
+			super();
+			this.statuses = statuses;
+		}
+
+		@Override
+		protected boolean update(Item parent) {
+			var versions = parent.getChildStatusVersion();
+			var changed = false;
+			for (var e : statuses.entrySet()) {
+				var childId = e.getKey();
+				var childStatus = e.getValue();
+				var version = versions.get(childId);
+				if (Objects.nonNull(version) && version >= childStatus.getVersion()) {
+					continue;
+				}
+				if (Objects.isNull(childStatus.getStatus())) {
+					parent.getChildStatus().remove(childId);
+					versions.remove(childId);
+				} else if (Objects.nonNull(version) || Arrays.asList(parent.getChildrenIds()).contains(childId)) {
+					parent.getChildStatus().put(childId, childStatus.getStatus());
+					versions.put(childId, childStatus.getVersion());
+				} else {
+					continue;
+				}
+				changed = true;
+			}
+			if (changed) {
 				calculateStatus(parent);
-				return Optional.of(parent);
 			}
-			return calculateStatus(parent);
-		}, this::pushParentsForUpdate);
+			return changed;
+		}
+
+		@Override
+		public void writeData(ObjectDataOutput out) throws IOException {
+			out.writeInt(statuses.size());
+			for (var e : statuses.entrySet()) {
+				out.writeString(e.getKey());
+				out.writeInt(Objects.isNull(e.getValue().getStatus()) ? -1 : e.getValue().getStatus().ordinal());
+				out.writeLong(e.getValue().getVersion());
+			}
+		}
+
+		@Override
+		public void readData(ObjectDataInput in) throws IOException {
+			var size = in.readInt();
+			statuses = new HashMap<String, ItemStatus>(size);
+			for (int i = 0; i < size; i++) {
+				var childId = in.readString();
+				var ordinal = in.readInt();
+				var version = in.readLong();
+				statuses.put(childId, new ItemStatus(ordinal < 0 ? null : BaseStatus.fromInteger(ordinal), version));
+			}
+		}
+
 	}
 
-	private int calculateEntityStatusAsCluster(Item item, ItemRule rule) {
+	/*
+	 * Recalculates the item even when no child status is new.
+	 */
+	static class ChildStatusRecalculate extends ChildStatusPut {
+
+		public ChildStatusRecalculate() {
+			super();
+		}
+
+		public ChildStatusRecalculate(Map<String, ItemStatus> statuses) {
+			super(statuses);
+		}
+
+		@Override
+		protected boolean update(Item parent) {
+			return super.update(parent) || calculateStatus(parent).isPresent();
+		}
+
+	}
+
+	static int calculateEntityStatusAsCluster(Item item, ItemRule rule) {
 		final var overal = item.getChildrenIds().length;
 		if (overal <= 0) {
 			return 0;
 		}
-		var listStatus = item.getChildStatus().entrySet().stream()
-				.map(Map.Entry::getValue)
-				.mapToInt(BaseStatus::ordinal)
-				.boxed()
-				.filter(i -> i >= rule.getStatusThreshold().ordinal())
-				.toList();
-		final var percent = 100 * listStatus.size() / overal;
+		var childStatus = item.getChildStatus();
+		final var percent = 100 * childStatus.countAtLeast(rule.getStatusThreshold()) / overal;
 		if (percent >= rule.getValueThreshold()) {
 			if (rule.isUsingResultStatus()) {
 				return rule.getResultStatus().ordinal();
 			} else {
-				return listStatus.stream().mapToInt(i -> i).min().orElse(0);
+				return childStatus.minAtLeast(rule.getStatusThreshold()).map(BaseStatus::ordinal).orElse(0);
 			}
 		}
 		return 0;
 	}
 	
-	private int calculateEntityStatusDefault(Item item) {
+	static int calculateEntityStatusDefault(Item item) {
 		return item.getChildStatus().getMaxStatus().ordinal();
 	}
 	
-	private int calculateStatusByChild(Item item) {
+	static int calculateStatusByChild(Item item) {
 		var rules = item.getRules();
 		return rules.entrySet().stream().mapToInt(e -> {
 			var rule = e.getValue();
@@ -286,12 +1261,17 @@ public class ItemService extends EntityService<String, Item> {
 		}).max().orElse(calculateEntityStatusDefault(item));
 	}
 	
-	private Optional<Item> calculateStatus(Item item) {
+	static Optional<Item> calculateStatus(Item item) {
+		return CALCULATE_STATUS_TIMER.record(() -> applyStatus(item));
+	}
+
+	private static Optional<Item> applyStatus(Item item) {
 		var maxStatus = BaseStatus.fromInteger(calculateStatusByChild(item));
 		var eventStatusMax = item.getEventsStatus().getMaxStatus();
 		maxStatus = maxStatus.max(eventStatusMax);
 		if (maxStatus != item.getStatus()) {
 			item.setStatus(maxStatus);
+			item.setStatusVersion(item.getStatusVersion() + 1);
 			return Optional.of(item);
 		}
 		return Optional.empty();
@@ -0,0 +1,194 @@
+package ru.keich.mon.servicemanager.item;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.java.Log;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.keich.mon.servicemanager.item.ItemService.ItemStatus;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Pushes item status changes to the subscribed clients. A subscriber
+ * gets a snapshot of its items first, then the changes by item id.
+ * Changes are conflated per subscriber and flushed on an interval,
+ * a slow client skips flushes and gets only the latest statuses.
+ */
+@Service
+@Log
+public class ItemStatusFeed {
+
+	public static final String EVENT_SNAPSHOT = "snapshot";
+	public static final String EVENT_STATUS = "status";
+	public static final String METRIC_SUBSCRIBERS = "servicemanager.feed.subscribers";
+
+	private final ItemService itemService;
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+	private final Duration flushInterval;
+	private final Duration heartbeatInterval;
+	private final Duration refreshInterval;
+
+	public ItemStatusFeed(ItemService itemService,
+			@Value("${ru.keich.mon.servicemanager.item.feed.flushmillis:500}") Long flushMillis,
+			@Value("${ru.keich.mon.servicemanager.item.feed.heartbeatseconds:15}") Long heartbeatSeconds,
+			@Value("${ru.keich.mon.servicemanager.item.feed.refreshseconds:60}") Long refreshSeconds) {
+		super();
+		this.itemService = itemService;
+		this.flushInterval = Duration.ofMillis(flushMillis);
+		this.heartbeatInterval = Duration.ofSeconds(heartbeatSeconds);
+		this.refreshInterval = Duration.ofSeconds(refreshSeconds);
+		itemService.addStatusListener(this::statusChanged);
+		Metrics.gauge(METRIC_SUBSCRIBERS, subscribers, Set::size);
+	}
+
+	private void statusChanged(Map<String, ItemStatus> statuses) {
+		subscribers.forEach(subscriber -> subscriber.offer(statuses));
+	}
+
+	/*
+	 * The scope returns the item ids of the subscriber, it is read
+	 * again on the refresh interval to follow the tree changes.
+	 */
+	public Flux<ServerSentEvent<Map<String, ItemStatus>>> subscribe(Supplier<Set<String>> scope) {
+		return Flux.defer(() -> {
+			var subscriber = new Subscriber(scope);
+			var snapshot = Mono.fromCallable(() -> {
+				subscriber.setIds(scope.get());
+				subscribers.add(subscriber);
+				return subscriber.snapshot(itemService.findStatusByIds(subscriber.getIds()));
+			}).subscribeOn(Schedulers.boundedElastic())
+					.map(statuses -> event(EVENT_SNAPSHOT, statuses));
+			var changes = Flux.interval(flushInterval)
+					.onBackpressureDrop()
+					.map(tick -> subscriber.drain())
+					.filter(statuses -> !statuses.isEmpty())
+					.map(statuses -> event(EVENT_STATUS, statuses));
+			var heartbeat = Flux.interval(heartbeatInterval)
+					.onBackpressureDrop()
+					.map(tick -> ServerSentEvent.<Map<String, ItemStatus>>builder().comment("").build());
+			var refresh = Flux.interval(refreshInterval, Schedulers.boundedElastic())
+					.onBackpressureDrop()
+					.doOnNext(tick -> subscriber.refresh())
+					.thenMany(Flux.<ServerSentEvent<Map<String, ItemStatus>>>empty());
+			return Flux.concat(snapshot, Flux.merge(changes, heartbeat, refresh))
+					.doFinally(signal -> subscribers.remove(subscriber));
+		});
+	}
+
+	private static ServerSentEvent<Map<String, ItemStatus>> event(String name, Map<String, ItemStatus> statuses) {
+		return ServerSentEvent.<Map<String, ItemStatus>>builder(statuses).event(name).build();
+	}
+
+	/*
+	 * Pending keeps the latest status by item id, sent keeps the
+	 * version the client has, so older or repeated statuses are
+	 * never sent. A removed item is forgotten once the removal is
+	 * sent, whatever version a recreated item starts with.
+	 */
+	private class Subscriber {
+
+		private final Supplier<Set<String>> scope;
+		private volatile Set<String> ids = Collections.emptySet();
+		private final Map<String, ItemStatus> pending = new HashMap<String, ItemStatus>();
+		private final Map<String, Long> sent = new HashMap<String, Long>();
+
+		public Subscriber(Supplier<Set<String>> scope) {
+			super();
+			this.scope = scope;
+		}
+
+		public Set<String> getIds() {
+			return ids;
+		}
+
+		public void setIds(Set<String> ids) {
+			this.ids = ids;
+		}
+
+		public void offer(Map<String, ItemStatus> statuses) {
+			var known = ids;
+			synchronized (this) {
+				statuses.forEach((itemId, status) -> {
+					if (known.contains(itemId)) {
+						pending.merge(itemId, status, (old, value) -> old.compareTo(value) > 0 ? old : value);
+					}
+				});
+			}
+		}
+
+		public synchronized Map<String, ItemStatus> snapshot(Map<String, ItemStatus> statuses) {
+			statuses.forEach((itemId, status) -> sent.put(itemId, status.getVersion()));
+			return statuses;
+		}
+
+		public synchronized Map<String, ItemStatus> drain() {
+			var out = new HashMap<String, ItemStatus>(pending.size());
+			pending.forEach((itemId, status) -> {
+				var version = sent.get(itemId);
+				if (Objects.isNull(version) || version < status.getVersion()) {
+					out.put(itemId, status);
+					if (Objects.isNull(status.getStatus())) {
+						sent.remove(itemId);
+					} else {
+						sent.put(itemId, status.getVersion());
+					}
+				}
+			});
+			pending.clear();
+			return out;
+		}
+
+		/*
+		 * Items new to the scope are sent with their current status,
+		 * items left out are forgotten.
+		 */
+		public void refresh() {
+			try {
+				var fresh = scope.get();
+				var added = new HashSet<String>(fresh);
+				added.removeAll(ids);
+				ids = fresh;
+				synchronized (this) {
+					sent.keySet().retainAll(fresh);
+					pending.keySet().retainAll(fresh);
+				}
+				if (!added.isEmpty()) {
+					offer(itemService.findStatusByIds(added));
+				}
+			} catch (RuntimeException e) {
+				log.warning("Item status feed refresh failed: " + e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,297 @@
+package ru.keich.mon.servicemanager.item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.LifecycleEvent.LifecycleState;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.java.Log;
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.entity.EntityService;
+import ru.keich.mon.servicemanager.event.EventService;
+import ru.keich.mon.servicemanager.item.ItemService.ChildStatusPut;
+import ru.keich.mon.servicemanager.item.ItemService.ItemLinks;
+import ru.keich.mon.servicemanager.item.ItemService.ItemStatus;
+import ru.keich.mon.servicemanager.item.ItemService.StatusCalculate;
+import ru.keich.mon.servicemanager.item.ItemService.StatusProcessor;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Repairs statuses left stale by lost queue elements. The events are
+ * matched again and the items that miss one get the event queued. The
+ * parents index is compared with the children ids of the items, as the
+ * statuses are carried up by it. Then the items are checked level by
+ * level from the leaves up, so a parent is checked after all its
+ * children are correct. Items in cycles come last. Corrections are the same version checked processors the queues
+ * use, so a run never overwrites a newer status.
+ *
+ * The oldest member runs it on a fixed delay and after a split brain
+ * merge, at most rateLimit entities per second.
+ */
+@Service
+@Log
+public class ItemStatusReconciler {
+
+	public static final String METRIC_RECONCILE = "servicemanager.item.reconcile";
+	public static final String METRIC_RECONCILE_CORRECTED = "servicemanager.item.reconcile.corrected";
+	public static final int CHUNK_SIZE = 500;
+	public static final int CHUNKS_PARALLEL = 4;
+
+	private final HazelcastInstance hazelcastInstance;
+	private final ItemService itemService;
+	private final EventService eventService;
+	private final boolean enabled;
+	private final int rateLimit;
+	private final AtomicBoolean running = new AtomicBoolean();
+	private final ExecutorService executor = ItemService.newExecutor(this.getClass().getName(), CHUNKS_PARALLEL);
+	private final Timer reconcileTimer = Metrics.timer(METRIC_RECONCILE);
+	private final Counter correctedCounter = Metrics.counter(METRIC_RECONCILE_CORRECTED);
+
+	public ItemStatusReconciler(HazelcastInstance hazelcastInstance, ItemService itemService,
+			EventService eventService,
+			@Value("${ru.keich.mon.servicemanager.item.reconcile.enabled:true}") Boolean enabled,
+			@Value("${ru.keich.mon.servicemanager.item.reconcile.ratelimit:2000}") Integer rateLimit) {
+		super();
+		this.hazelcastInstance = hazelcastInstance;
+		this.itemService = itemService;
+		this.eventService = eventService;
+		this.enabled = enabled;
+		this.rateLimit = Math.max(rateLimit, 1);
+		hazelcastInstance.getLifecycleService().addLifecycleListener(event -> {
+			if (event.getState() == LifecycleState.MERGED) {
+				var thread = new Thread(this::scheduled, this.getClass().getName() + "-merged");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		});
+	}
+
+	@Getter
+	public static class Result {
+
+		int items;
+		int events;
+		int corrected;
+		int parents;
+
+	}
+
+	@Scheduled(initialDelayString = "${ru.keich.mon.servicemanager.item.reconcile.delaymillis:300000}",
+			fixedDelayString = "${ru.keich.mon.servicemanager.item.reconcile.delaymillis:300000}")
+	public void scheduled() {
+		var oldest = hazelcastInstance.getCluster().getMembers().iterator().next();
+		if (enabled && oldest.localMember()) {
+			reconcile();
+		}
+	}
+
+	/*
+	 * Returns null when a run is already in progress.
+	 */
+	public Result reconcile() {
+		if (!running.compareAndSet(false, true)) {
+			return null;
+		}
+		try {
+			var result = reconcileTimer.record(this::run);
+			correctedCounter.increment(result.corrected);
+			log.info("Reconciled " + result.items + " items and " + result.events + " events, corrected "
+					+ result.corrected + " items and the parents of " + result.parents + " items");
+			return result;
+		} finally {
+			running.set(false);
+		}
+	}
+
+	private Result run() {
+		var result = new Result();
+		var pacer = new Pacer(rateLimit);
+		var expected = matchEvents(result, pacer);
+		var links = itemService.findAllLinks();
+		result.parents = reconcileParents(links);
+		var statuses = new ConcurrentHashMap<String, ItemStatus>(links.size());
+		var changedEvents = ConcurrentHashMap.<String>newKeySet();
+		var removedEvents = ConcurrentHashMap.<String>newKeySet();
+		var corrected = new AtomicInteger();
+		for (var level : ItemGraph.levels(links.entrySet()
+				.stream()
+				.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getChildrenIds())))) {
+			var cycle = level.isCycle();
+			for (int from = 0; from < level.getIds().size(); from += CHUNK_SIZE * CHUNKS_PARALLEL) {
+				var group = level.getIds().subList(from, Math.min(from + CHUNK_SIZE * CHUNKS_PARALLEL, level.getIds().size()));
+				var futures = new ArrayList<CompletableFuture<Void>>();
+				for (int chunk = 0; chunk < group.size(); chunk += CHUNK_SIZE) {
+					var ids = new HashSet<String>(group.subList(chunk, Math.min(chunk + CHUNK_SIZE, group.size())));
+					futures.add(CompletableFuture.runAsync(() -> corrected.addAndGet(reconcileItems(ids, links,
+							expected, statuses, changedEvents, removedEvents, cycle)), executor));
+				}
+				futures.forEach(CompletableFuture::join);
+				result.items += group.size();
+				pacer.pace(group.size());
+			}
+		}
+		var found = eventService.findByIds(new HashSet<String>(removedEvents), Set.of(EntityService.FIELD_ID));
+		removedEvents.removeIf(eventId -> Objects.nonNull(found.get(eventId)));
+		itemService.requeueEvents(changedEvents, removedEvents);
+		result.corrected = corrected.get();
+		return result;
+	}
+
+	/*
+	 * Edges that differ between the children ids and the parents index
+	 * are set again from the parents as they are now, an upsert made
+	 * after the links were read is not undone.
+	 */
+	private int reconcileParents(Map<String, ItemLinks> links) {
+		var expected = new HashMap<String, Set<String>>();
+		links.forEach((parentId, link) -> Arrays.stream(link.getChildrenIds())
+				.forEach(childId -> expected.computeIfAbsent(childId, k -> new HashSet<String>()).add(parentId)));
+		var actual = itemService.findAllParents();
+		var differ = new HashMap<String, Set<String>>();
+		Stream.concat(expected.keySet().stream(), actual.keySet().stream())
+				.distinct()
+				.forEach(childId -> {
+					var want = expected.getOrDefault(childId, Set.of());
+					var have = new HashSet<String>(Arrays.asList(actual.getOrDefault(childId, new String[0])));
+					if (!want.equals(have)) {
+						have.addAll(want);
+						differ.put(childId, have);
+					}
+				});
+		return itemService.repairParents(differ);
+	}
+
+	/*
+	 * Event statuses every item should have, by item id.
+	 */
+	private Map<String, Map<String, BaseStatus>> matchEvents(Result result, Pacer pacer) {
+		var expected = new ConcurrentHashMap<String, Map<String, BaseStatus>>();
+		var eventIds = new ArrayList<String>(eventService.findAllIds());
+		for (int from = 0; from < eventIds.size(); from += CHUNK_SIZE) {
+			var chunk = new HashSet<String>(eventIds.subList(from, Math.min(from + CHUNK_SIZE, eventIds.size())));
+			eventService.findByIds(chunk).values().forEach(event -> itemService.findFiltersByEqualFields(event)
+					.forEach(match -> {
+						var filter = match.getFilter();
+						var status = filter.isUsingResultStatus() ? filter.getResultStatus() : event.getStatus();
+						expected.computeIfAbsent(match.getItemId(), k -> new ConcurrentHashMap<String, BaseStatus>())
+								.put(event.getId(), status);
+					}));
+			result.events += chunk.size();
+			pacer.pace(chunk.size());
+		}
+		return expected;
+	}
+
+	/*
+	 * Children statuses come from the levels below, so only the
+	 * versions are compared. An item with correct children may still
+	 * have a stale status of its own.
+	 */
+	private int reconcileItems(Set<String> ids, Map<String, ItemLinks> links,
+			Map<String, Map<String, BaseStatus>> expected, Map<String, ItemStatus> statuses,
+			Set<String> changedEvents, Set<String> removedEvents, boolean cycle) {
+		var processors = new HashMap<String, StatusProcessor>();
+		var corrected = new HashSet<String>();
+		for (var item : itemService.findByIds(ids).values()) {
+			statuses.put(item.getId(), new ItemStatus(item.getStatus(), item.getStatusVersion()));
+			var eventsStatus = item.getEventsStatus();
+			expected.getOrDefault(item.getId(), Map.of()).forEach((eventId, status) -> {
+				if (eventsStatus.get(eventId) != status) {
+					changedEvents.add(eventId);
+					corrected.add(item.getId());
+				}
+			});
+			eventsStatus.keySet().forEach(eventId -> {
+				if (!expected.getOrDefault(item.getId(), Map.of()).containsKey(eventId)) {
+					removedEvents.add(eventId);
+				}
+			});
+			var children = new HashMap<String, ItemStatus>();
+			var versions = item.getChildStatusVersion();
+			Arrays.stream(item.getChildrenIds())
+					.filter(childId -> Objects.nonNull(statuses.get(childId)))
+					.filter(childId -> !Objects.equals(versions.get(childId), statuses.get(childId).getVersion()))
+					.forEach(childId -> children.put(childId, statuses.get(childId)));
+			versions.forEach((childId, version) -> {
+				if (!links.containsKey(childId)) {
+					children.put(childId, new ItemStatus(null, version + 1));
+				}
+			});
+			if (!children.isEmpty()) {
+				processors.put(item.getId(), new ChildStatusPut(children));
+			} else if (ItemService.calculateStatus(item).isPresent()) {
+				processors.put(item.getId(), new StatusCalculate());
+			}
+		}
+		if (!processors.isEmpty()) {
+			statuses.putAll(itemService.applyStatusProcessors(processors, cycle));
+			corrected.addAll(processors.keySet());
+		}
+		return corrected.size();
+	}
+
+	/*
+	 * Sleeps when the run is ahead of the rate.
+	 */
+	static class Pacer {
+
+		private final int rate;
+		private final long start = System.nanoTime();
+		private long count = 0;
+
+		public Pacer(int rate) {
+			super();
+			this.rate = rate;
+		}
+
+		public void pace(int processed) {
+			count += processed;
+			var ahead = count * 1000 / rate - (System.nanoTime() - start) / 1_000_000;
+			if (ahead > 0) {
+				try {
+					Thread.sleep(ahead);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+	}
+
+}
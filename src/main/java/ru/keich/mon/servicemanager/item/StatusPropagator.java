@@ -0,0 +1,180 @@
+package ru.keich.mon.servicemanager.item;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.hazelcast.core.HazelcastInstanceNotActiveException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.java.Log;
+import ru.keich.mon.servicemanager.item.ItemService.ChildStatusPut;
+import ru.keich.mon.servicemanager.item.ItemService.ChildStatusRecalculate;
+import ru.keich.mon.servicemanager.item.ItemService.ItemStatus;
+import ru.keich.mon.servicemanager.item.ItemService.StatusProcessor;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Carries status changes up the tree level by level. Changes are
+ * gathered for a window, then all ancestors of the changed items are
+ * found and ordered by depth, and every level is written with one
+ * processAll. A parent is written once per window, after all its
+ * changed children, however many paths lead to it.
+ *
+ * Pending changes live in the member memory, the ones lost with the
+ * member are repaired by the reconciler.
+ */
+@Log
+class StatusPropagator {
+
+	public static final String METRIC_PROPAGATION_FLUSH = "servicemanager.item.propagation.flush";
+	public static final String METRIC_PROPAGATION_LEVELS = "servicemanager.item.propagation.levels";
+	static final Timer FLUSH_TIMER = Metrics.timer(METRIC_PROPAGATION_FLUSH);
+	static final DistributionSummary LEVELS_SUMMARY = Metrics.summary(METRIC_PROPAGATION_LEVELS);
+
+	private final ItemService itemService;
+	private final long windowMillis;
+	private Map<String, ItemStatus> changed = new HashMap<String, ItemStatus>();
+	private Set<String> recalculate = new HashSet<String>();
+
+	public StatusPropagator(ItemService itemService, long windowMillis) {
+		super();
+		this.itemService = itemService;
+		this.windowMillis = windowMillis;
+		var thread = new Thread(this::run, this.getClass().getName());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/*
+	 * The items already have the statuses, their parents are told.
+	 */
+	public synchronized void childrenChanged(Map<String, ItemStatus> statuses) {
+		statuses.forEach((itemId, status) -> changed.merge(itemId, status,
+				(old, value) -> old.compareTo(value) > 0 ? old : value));
+		notifyAll();
+	}
+
+	/*
+	 * The items are recalculated first, then their parents are told.
+	 */
+	public synchronized void recalculate(Set<String> itemIds) {
+		recalculate.addAll(itemIds);
+		notifyAll();
+	}
+
+	private synchronized void await() throws InterruptedException {
+		while (changed.isEmpty() && recalculate.isEmpty()) {
+			wait();
+		}
+	}
+
+	private void run() {
+		while (true) {
+			Map<String, ItemStatus> statuses;
+			Set<String> itemIds;
+			try {
+				await();
+				Thread.sleep(windowMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			synchronized (this) {
+				statuses = changed;
+				itemIds = recalculate;
+				changed = new HashMap<String, ItemStatus>();
+				recalculate = new HashSet<String>();
+			}
+			try {
+				FLUSH_TIMER.record(() -> flush(statuses, itemIds));
+			} catch (HazelcastInstanceNotActiveException e) {
+				return;
+			} catch (RuntimeException e) {
+				log.warning("Status propagation of " + (statuses.size() + itemIds.size()) + " items failed: " + e);
+			}
+		}
+	}
+
+	/*
+	 * Items in a cycle are written once and their changes go to the
+	 * next window, as the queue did. Versions stop the loop.
+	 */
+	private void flush(Map<String, ItemStatus> statuses, Set<String> itemIds) {
+		var childrenIds = findAncestors(statuses.keySet(), itemIds);
+		var known = new HashMap<String, ItemStatus>(statuses);
+		var levels = ItemGraph.levels(childrenIds.entrySet()
+				.stream()
+				.collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().toArray(String[]::new))));
+		LEVELS_SUMMARY.record(levels.size());
+		for (var level : levels) {
+			var processors = new HashMap<String, StatusProcessor>();
+			level.getIds().forEach(itemId -> {
+				var children = new HashMap<String, ItemStatus>();
+				childrenIds.get(itemId).stream()
+						.filter(known::containsKey)
+						.forEach(childId -> children.put(childId, known.get(childId)));
+				if (itemIds.contains(itemId)) {
+					processors.put(itemId, new ChildStatusRecalculate(children));
+				} else if (!children.isEmpty()) {
+					processors.put(itemId, new ChildStatusPut(children));
+				}
+			});
+			if (processors.isEmpty()) {
+				continue;
+			}
+			var result = itemService.applyStatusProcessors(processors, false);
+			known.putAll(result);
+			if (level.isCycle()) {
+				childrenChanged(result);
+			}
+		}
+	}
+
+	/*
+	 * Changed children of every item, the parents are read one tree
+	 * level per call.
+	 */
+	private Map<String, List<String>> findAncestors(Set<String> changedIds, Set<String> itemIds) {
+		var childrenIds = new HashMap<String, List<String>>();
+		var frontier = new HashSet<String>(changedIds);
+		frontier.addAll(itemIds);
+		frontier.forEach(itemId -> childrenIds.put(itemId, new ArrayList<String>()));
+		while (!frontier.isEmpty()) {
+			var next = new HashSet<String>();
+			itemService.findParentIdsByIds(frontier).forEach((childId, parentIds) -> {
+				for (var parentId : parentIds) {
+					if (!childrenIds.containsKey(parentId)) {
+						childrenIds.put(parentId, new ArrayList<String>());
+						next.add(parentId);
+					}
+					childrenIds.get(parentId).add(childId);
+				}
+			});
+			frontier = next;
+		}
+		return childrenIds;
+	}
+
+}
@@ -1,9 +1,10 @@
 package ru.keich.mon.servicemanager.mapstatus;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
-
 import java.util.Set;
 
 import ru.keich.mon.servicemanager.BaseStatus;
@@ -24,21 +25,57 @@ import ru.keich.mon.servicemanager.BaseStatus;
  * limitations under the License.
  */
 
+/*
+ * Keeps the number of entries per status next to the map, so the
+ * max status and the threshold counts never walk the entries.
+ * Counters are serialized with the map, a null array (data written
+ * before they existed) is rebuilt on first use, before data changes.
+ */
 public class MapStatus {
 
 	private BaseStatus maxStatus = BaseStatus.CLEAR;
 	
 	private HashMap<String, BaseStatus> data = new HashMap<String, BaseStatus>();
 
+	private int[] counters = new int[BaseStatus.length];
+
+	public MapStatus() {
+		super();
+	}
+
+	MapStatus(HashMap<String, BaseStatus> data, int[] counters, BaseStatus maxStatus) {
+		super();
+		this.data = data;
+		this.counters = counters;
+		this.maxStatus = maxStatus;
+	}
+
+	HashMap<String, BaseStatus> getData() {
+		return data;
+	}
+
 	public Optional<BaseStatus> put(String id, BaseStatus status) {
+		var counters = getCounters();
 		var opt = Optional.ofNullable(data.put(id, status));
-		maxStatus = calculateMaxStatus();
+		opt.ifPresent(old -> counters[old.ordinal()]--);
+		counters[status.ordinal()]++;
+		if (status.moreThen(maxStatus)) {
+			maxStatus = status;
+		} else if (opt.isPresent() && opt.get() == maxStatus && status != maxStatus) {
+			maxStatus = calculateMaxStatus();
+		}
 		return opt;
 	}
 
 	public BaseStatus remove(String id) {
+		var counters = getCounters();
 		var oldStatus = data.remove(id);
-		maxStatus = calculateMaxStatus();
+		if (Objects.nonNull(oldStatus)) {
+			counters[oldStatus.ordinal()]--;
+			if (oldStatus == maxStatus) {
+				maxStatus = calculateMaxStatus();
+			}
+		}
 		return oldStatus;
 	}
 
@@ -47,23 +84,60 @@ public class MapStatus {
 	}
 
 	public Set<String> keySet() {
-		return data.keySet();
+		return Collections.unmodifiableSet(data.keySet());
 	}
 
 	public Set<Entry<String, BaseStatus>> entrySet() {
-		return data.entrySet();
+		return Collections.unmodifiableMap(data).entrySet();
+	}
+
+	public int size() {
+		return data.size();
 	}
 	
 	public BaseStatus getMaxStatus() {
 		return maxStatus;
 	}
+
+	public int count(BaseStatus status) {
+		return getCounters()[status.ordinal()];
+	}
+
+	public int countAtLeast(BaseStatus threshold) {
+		var counters = getCounters();
+		var out = 0;
+		for (int i = threshold.ordinal(); i < BaseStatus.length; i++) {
+			out += counters[i];
+		}
+		return out;
+	}
+
+	public Optional<BaseStatus> minAtLeast(BaseStatus threshold) {
+		var counters = getCounters();
+		for (int i = threshold.ordinal(); i < BaseStatus.length; i++) {
+			if (counters[i] > 0) {
+				return Optional.of(BaseStatus.fromInteger(i));
+			}
+		}
+		return Optional.empty();
+	}
+
+	int[] getCounters() {
+		if (Objects.isNull(counters) || counters.length != BaseStatus.length) {
+			counters = new int[BaseStatus.length];
+			data.values().forEach(status -> counters[status.ordinal()]++);
+		}
+		return counters;
+	}
 	
 	private BaseStatus calculateMaxStatus() {
-		BaseStatus max = BaseStatus.CLEAR;
-		for(var s: data.entrySet()) {
-			max = max.max(s.getValue());
+		var counters = getCounters();
+		for (int i = BaseStatus.length - 1; i > 0; i--) {
+			if (counters[i] > 0) {
+				return BaseStatus.fromInteger(i);
+			}
 		}
-		return max;
+		return BaseStatus.CLEAR;
 	}
 
 }
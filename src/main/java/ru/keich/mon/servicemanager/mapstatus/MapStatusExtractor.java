@@ -1,6 +1,9 @@
 package ru.keich.mon.servicemanager.mapstatus;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Objects;
 
 import com.hazelcast.internal.serialization.impl.GenericRecordQueryReader;
 import com.hazelcast.query.extractor.ValueCollector;
@@ -22,20 +25,43 @@ import com.hazelcast.query.extractor.ValueExtractor;
  * limitations under the License.
  */
 
+/*
+ * Indexes the keys of a MapStatus field straight from the keys array
+ * of its compact record, the map itself is never deserialized.
+ */
 public class MapStatusExtractor implements ValueExtractor<GenericRecordQueryReader, String> {
 
 	static final String KEYS = "keys";
 
+	private final String field;
+
+	public MapStatusExtractor() {
+		this("eventsStatus");
+	}
+
+	protected MapStatusExtractor(String field) {
+		super();
+		this.field = field;
+	}
+
 	@Override
 	public void extract(GenericRecordQueryReader record, String argument, ValueCollector<Object> collector) {
 		try {
-			var eventsStatus = (MapStatus) record.read("eventsStatus");
-			eventsStatus.keySet().forEach(k -> {
-				collector.addObject(k);
-			});
+			var keys = (String[]) record.read(field + "." + MapStatusSerializer.FIELD_KEYS);
+			if (Objects.nonNull(keys)) {
+				Arrays.stream(keys).forEach(collector::addObject);
+			}
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static class Children extends MapStatusExtractor {
+
+		public Children() {
+			super("childStatus");
 		}
+
 	}
 
 }
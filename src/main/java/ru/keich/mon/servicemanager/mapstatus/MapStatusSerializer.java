@@ -0,0 +1,81 @@
+package ru.keich.mon.servicemanager.mapstatus;
+
+import java.util.HashMap;
+
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.CompactFields;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Keys and status ordinals are written as parallel arrays, the keys
+ * array is what the index and MapStatusExtractor read.
+ */
+public class MapStatusSerializer implements CompactSerializer<MapStatus> {
+
+	public static final String FIELD_KEYS = "keys";
+	public static final String FIELD_STATUSES = "statuses";
+	public static final String FIELD_COUNTERS = "counters";
+	public static final String FIELD_MAXSTATUS = "maxStatus";
+
+	@Override
+	public MapStatus read(CompactReader reader) {
+		var keys = CompactFields.readStringArray(reader, FIELD_KEYS);
+		var statuses = CompactFields.has(reader, FIELD_STATUSES) ? reader.readArrayOfInt8(FIELD_STATUSES) : null;
+		var data = new HashMap<String, BaseStatus>(keys.length * 2);
+		for (int i = 0; i < keys.length; i++) {
+			data.put(keys[i], BaseStatus.fromInteger(statuses[i]));
+		}
+		var counters = CompactFields.has(reader, FIELD_COUNTERS) ? reader.readArrayOfInt32(FIELD_COUNTERS) : null;
+		var maxStatus = BaseStatus.fromInteger(CompactFields.readInt32(reader, FIELD_MAXSTATUS, 0));
+		var mapStatus = new MapStatus(data, counters, maxStatus);
+		mapStatus.getCounters();
+		return mapStatus;
+	}
+
+	@Override
+	public void write(CompactWriter writer, MapStatus object) {
+		var data = object.getData();
+		var keys = new String[data.size()];
+		var statuses = new byte[data.size()];
+		var i = 0;
+		for (var e : data.entrySet()) {
+			keys[i] = e.getKey();
+			statuses[i] = (byte) e.getValue().ordinal();
+			i++;
+		}
+		writer.writeArrayOfString(FIELD_KEYS, keys);
+		writer.writeArrayOfInt8(FIELD_STATUSES, statuses);
+		writer.writeArrayOfInt32(FIELD_COUNTERS, object.getCounters());
+		writer.writeInt32(FIELD_MAXSTATUS, object.getMaxStatus().ordinal());
+	}
+
+	@Override
+	public String getTypeName() {
+		return "MapStatus";
+	}
+
+	@Override
+	public Class<MapStatus> getCompactClass() {
+		return MapStatus.class;
+	}
+
+}
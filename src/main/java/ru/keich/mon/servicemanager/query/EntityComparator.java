@@ -0,0 +1,117 @@
+package ru.keich.mon.servicemanager.query;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Sort order for paging queries, it runs on every member. The sort is
+ * a comma separated list of fields, a "-" prefix means descending.
+ * A field may address a map value as fields.name or fields[name].
+ * Nulls go last, equal entries are ordered by key so pages are stable.
+ */
+public class EntityComparator<K, T> implements Comparator<Map.Entry<K, T>>, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<String[]> paths = new ArrayList<String[]>();
+	private final List<Boolean> descending = new ArrayList<Boolean>();
+
+	public EntityComparator(String sort) {
+		super();
+		if (Objects.isNull(sort)) {
+			return;
+		}
+		Arrays.stream(sort.split(","))
+				.map(String::trim)
+				.filter(s -> !s.isEmpty())
+				.forEach(s -> {
+					var desc = s.startsWith("-");
+					var name = desc || s.startsWith("+") ? s.substring(1) : s;
+					paths.add(name.replace("]", "").split("[.\\[]"));
+					descending.add(desc);
+				});
+	}
+
+	@Override
+	public int compare(Map.Entry<K, T> o1, Map.Entry<K, T> o2) {
+		for (int i = 0; i < paths.size(); i++) {
+			var ret = compareValues(getValue(o1.getValue(), paths.get(i)), getValue(o2.getValue(), paths.get(i)));
+			if (ret != 0) {
+				return descending.get(i) ? -ret : ret;
+			}
+		}
+		return compareValues(o1.getKey(), o2.getKey());
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static int compareValues(Object v1, Object v2) {
+		if (Objects.isNull(v1) || Objects.isNull(v2)) {
+			return Objects.isNull(v1) ? (Objects.isNull(v2) ? 0 : 1) : -1;
+		}
+		if (v1 instanceof Comparable && v1.getClass().isInstance(v2)) {
+			return ((Comparable) v1).compareTo(v2);
+		}
+		return v1.toString().compareTo(v2.toString());
+	}
+
+	private static Object getValue(Object value, String[] path) {
+		for (var name : path) {
+			if (Objects.isNull(value)) {
+				return null;
+			}
+			if (value instanceof Map<?, ?> map) {
+				value = map.get(name);
+			} else {
+				var field = findField(value.getClass(), name)
+						.orElseThrow(() -> new InvalidQueryException("Unknown sort field " + name));
+				value = getField(value, field);
+			}
+		}
+		return value;
+	}
+
+	public static Optional<Field> findField(Class<?> type, String name) {
+		for (Class<?> c = type; Objects.nonNull(c); c = c.getSuperclass()) {
+			try {
+				Field field = c.getDeclaredField(name);
+				field.setAccessible(true);
+				return Optional.of(field);
+			} catch (NoSuchFieldException e) {
+				continue;
+			}
+		}
+		return Optional.empty();
+	}
+
+	static Object getField(Object value, Field field) {
+		try {
+			return field.get(value);
+		} catch (IllegalAccessException e) {
+			return null;
+		}
+	}
+
+}
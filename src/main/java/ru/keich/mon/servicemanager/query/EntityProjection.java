@@ -0,0 +1,93 @@
+package ru.keich.mon.servicemanager.query;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.hazelcast.core.ReadOnly;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.projection.Projection;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Selects the requested properties on the member that owns the entry,
+ * only they are sent back. Used as a projection for queries and as a
+ * read only processor to select properties of known keys. Properties
+ * that are unknown, transient or hidden from json are skipped.
+ */
+public class EntityProjection<K, T> implements Projection<Map.Entry<K, T>, Map<String, Object>>,
+		EntryProcessor<K, T, Map<String, Object>>, ReadOnly {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String[] properties;
+
+	private transient Map<Class<?>, Map<String, Field>> fields;
+
+	public EntityProjection(Collection<String> properties) {
+		super();
+		this.properties = properties.toArray(String[]::new);
+	}
+
+	@Override
+	public Map<String, Object> transform(Map.Entry<K, T> entry) {
+		var value = entry.getValue();
+		if (Objects.isNull(value)) {
+			return null;
+		}
+		var out = new LinkedHashMap<String, Object>();
+		getFields(value.getClass()).forEach((name, field) -> {
+			var v = EntityComparator.getField(value, field);
+			out.put(name, v instanceof Map<?, ?> map ? new LinkedHashMap<Object, Object>(map) : v);
+		});
+		return out;
+	}
+
+	private Map<String, Field> getFields(Class<?> type) {
+		if (Objects.isNull(fields)) {
+			fields = new ConcurrentHashMap<Class<?>, Map<String, Field>>();
+		}
+		return fields.computeIfAbsent(type, t -> {
+			var out = new LinkedHashMap<String, Field>();
+			for (var name : properties) {
+				EntityComparator.findField(t, name)
+						.filter(field -> !Modifier.isTransient(field.getModifiers()))
+						.filter(field -> !Modifier.isStatic(field.getModifiers()))
+						.filter(field -> !field.isAnnotationPresent(JsonIgnore.class))
+						.ifPresent(field -> out.put(name, field));
+			}
+			return out;
+		});
+	}
+
+	@Override
+	public Map<String, Object> process(Map.Entry<K, T> entry) {
+		return transform(entry);
+	}
+
+	@Override
+	public EntryProcessor<K, T, Map<String, Object>> getBackupProcessor() {
+		return null;
+	}
+
+}
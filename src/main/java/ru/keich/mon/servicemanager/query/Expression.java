@@ -0,0 +1,76 @@
+package ru.keich.mon.servicemanager.query;
+
+import java.util.List;
+
+import lombok.Getter;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Parsed query, the terms are filters.
+ */
+public abstract class Expression {
+
+	@Getter
+	public static class Term extends Expression {
+
+		private final Filter filter;
+
+		public Term(Filter filter) {
+			super();
+			this.filter = filter;
+		}
+
+	}
+
+	@Getter
+	public static class And extends Expression {
+
+		private final List<Expression> operands;
+
+		public And(List<Expression> operands) {
+			super();
+			this.operands = operands;
+		}
+
+	}
+
+	@Getter
+	public static class Or extends Expression {
+
+		private final List<Expression> operands;
+
+		public Or(List<Expression> operands) {
+			super();
+			this.operands = operands;
+		}
+
+	}
+
+	@Getter
+	public static class Not extends Expression {
+
+		private final Expression operand;
+
+		public Not(Expression operand) {
+			super();
+			this.operand = operand;
+		}
+
+	}
+
+}
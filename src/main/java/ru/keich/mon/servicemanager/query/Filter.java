@@ -1,5 +1,7 @@
 package ru.keich.mon.servicemanager.query;
 
+import java.util.List;
+
 import lombok.Getter;
 
 /*
@@ -18,30 +20,43 @@ import lombok.Getter;
  * limitations under the License.
  */
 
+/*
+ * One query term. IN and BW take several values, in a request
+ * parameter they are comma separated: status=in:MAJOR,CRITICAL,
+ * createdOn=bw:2024-01-01T00:00,2024-02-01T00:00.
+ */
 @Getter
 public class Filter {
 
 	private final String name;
 	private final Operator operator;
 	private final String value;
+	private final List<String> values;
 
 	public Filter(String name, Operator operator, String value) {
+		this(name, operator, List.of(value));
+	}
+
+	public Filter(String name, Operator operator, List<String> values) {
 		super();
 		this.name = name;
 		this.operator = operator;
-		this.value = value;
+		this.values = values;
+		this.value = values.isEmpty() ? "" : values.get(0);
 	}
 
 	public Filter(String name, String value) {
 		var arr = value.split(":", 2);
+		this.name = name;
 		if (arr.length == 2) {
-			this.name = name;
 			this.operator = Operator.fromString(arr[0]);
 			this.value = arr[1];
+			this.values = operator == Operator.IN || operator == Operator.BW ? List.of(arr[1].split(","))
+					: List.of(arr[1]);
 		} else {
-			this.name = name;
 			this.operator = Operator.ERROR;
 			this.value = value;
+			this.values = List.of(value);
 		}
 	}
 
@@ -0,0 +1,88 @@
+package ru.keich.mon.servicemanager.query;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.hazelcast.aggregation.Aggregator;
+import com.hazelcast.query.impl.Extractable;
+import com.hazelcast.query.impl.getters.MultiResult;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Counts the entries by the values of the attributes. The values are
+ * read by the query engine in their stored form, so the entries are
+ * not deserialized, and only the counts leave the members. A multi
+ * value or array attribute groups by the list of its values.
+ */
+public class GroupCountAggregator<K, T> implements Aggregator<Map.Entry<K, T>, Map<List<Object>, Long>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String[] attributes;
+	private final HashMap<List<Object>, Long> counts = new HashMap<List<Object>, Long>();
+
+	public GroupCountAggregator(List<String> attributes) {
+		super();
+		this.attributes = attributes.toArray(String[]::new);
+	}
+
+	@Override
+	public void accumulate(Map.Entry<K, T> entry) {
+		var extractable = (Extractable) entry;
+		var key = new ArrayList<Object>(attributes.length);
+		for (var attribute : attributes) {
+			var value = extractable.getAttributeValue(attribute);
+			key.add(toKey(value));
+		}
+		counts.merge(key, 1L, Long::sum);
+	}
+
+	/*
+	 * Arrays hash by identity, they are grouped as lists.
+	 */
+	private static Object toKey(Object value) {
+		if (value instanceof MultiResult<?> multi) {
+			return new ArrayList<Object>(multi.getResults());
+		}
+		if (Objects.nonNull(value) && value.getClass().isArray()) {
+			var length = Array.getLength(value);
+			var list = new ArrayList<Object>(length);
+			for (int i = 0; i < length; i++) {
+				list.add(Array.get(value, i));
+			}
+			return list;
+		}
+		return value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void combine(Aggregator aggregator) {
+		((GroupCountAggregator<K, T>) aggregator).counts.forEach((key, count) -> counts.merge(key, count, Long::sum));
+	}
+
+	@Override
+	public Map<List<Object>, Long> aggregate() {
+		return counts;
+	}
+
+}
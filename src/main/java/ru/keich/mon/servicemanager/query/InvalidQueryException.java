@@ -0,0 +1,31 @@
+package ru.keich.mon.servicemanager.query;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * A query the client got wrong: a parse error, an unknown field or a
+ * bad parameter value. The controllers answer it with 400.
+ */
+public class InvalidQueryException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	public InvalidQueryException(String message) {
+		super(message);
+	}
+
+}
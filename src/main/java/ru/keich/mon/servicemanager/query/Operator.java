@@ -18,7 +18,7 @@ package ru.keich.mon.servicemanager.query;
 
 public enum Operator {
 	
-	NE, EQ, LT, GT, CO, NC, ERROR, ALL;
+	NE, EQ, LT, LE, GT, GE, CO, NC, IN, BW, PR, QUERY, ERROR, ALL;
 
 	public static Operator fromString(String str) {
 		switch (str.toUpperCase()) {
@@ -28,12 +28,22 @@ public enum Operator {
 			return EQ;
 		case "LT":
 			return LT;
+		case "LE":
+			return LE;
 		case "GT":
 			return GT;
+		case "GE":
+			return GE;
 		case "CO":
 			return CO;
 		case "NC":
 			return NC;
+		case "IN":
+			return IN;
+		case "BW":
+			return BW;
+		case "PR":
+			return PR;
 		}
 		return ERROR;
 	}
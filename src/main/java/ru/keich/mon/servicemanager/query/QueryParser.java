@@ -0,0 +1,231 @@
+package ru.keich.mon.servicemanager.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Parses the q parameter of the queries:
+ *
+ *   status>=WARNING and (node in (n1, n2) or source^=snmp)
+ *   createdOn between 2024-01-01T00:00 and 2024-02-01T00:00
+ *   not summary~'link down'
+ *
+ * Operators are = != < <= > >= ^= (prefix) ~ (contains) !~ (does not
+ * contain), IN, NOT IN and BETWEEN, keywords are case insensitive. NOT
+ * binds tighter than AND, AND tighter than OR. A value with spaces or
+ * operator characters is quoted, a doubled quote is the quote itself.
+ */
+public class QueryParser {
+
+	private static final String OPERATOR_CHARS = "=<>!~^";
+	private static final String SPECIAL_CHARS = "(),'\"" + OPERATOR_CHARS;
+	private static final Map<String, Operator> OPERATORS = Map.of(
+			"=", Operator.EQ,
+			"!=", Operator.NE,
+			"<", Operator.LT,
+			"<=", Operator.LE,
+			">", Operator.GT,
+			">=", Operator.GE,
+			"^=", Operator.PR,
+			"~", Operator.CO,
+			"!~", Operator.NC);
+
+	private final String text;
+	private int position = 0;
+	private int tokenStart = 0;
+	private String token;
+	private boolean quoted;
+
+	private QueryParser(String text) {
+		super();
+		this.text = text;
+	}
+
+	/*
+	 * Throws InvalidQueryException with the position of the error.
+	 */
+	public static Expression parse(String text) {
+		var parser = new QueryParser(text);
+		parser.next();
+		var expression = parser.parseOr();
+		if (Objects.nonNull(parser.token)) {
+			throw parser.error("unexpected " + parser.token);
+		}
+		return expression;
+	}
+
+	private Expression parseOr() {
+		var operands = new ArrayList<Expression>();
+		operands.add(parseAnd());
+		while (isKeyword("OR")) {
+			next();
+			operands.add(parseAnd());
+		}
+		return operands.size() == 1 ? operands.get(0) : new Expression.Or(operands);
+	}
+
+	private Expression parseAnd() {
+		var operands = new ArrayList<Expression>();
+		operands.add(parseUnary());
+		while (isKeyword("AND")) {
+			next();
+			operands.add(parseUnary());
+		}
+		return operands.size() == 1 ? operands.get(0) : new Expression.And(operands);
+	}
+
+	private Expression parseUnary() {
+		if (isKeyword("NOT")) {
+			next();
+			return new Expression.Not(parseUnary());
+		}
+		if (isSymbol("(")) {
+			next();
+			var expression = parseOr();
+			expect(")");
+			return expression;
+		}
+		return parseTerm();
+	}
+
+	private Expression parseTerm() {
+		if (Objects.isNull(token) || quoted || SPECIAL_CHARS.indexOf(token.charAt(0)) >= 0) {
+			throw error("name expected");
+		}
+		var name = token;
+		next();
+		if (isKeyword("NOT")) {
+			next();
+			if (!isKeyword("IN")) {
+				throw error("IN expected");
+			}
+			return new Expression.Not(parseIn(name));
+		}
+		if (isKeyword("IN")) {
+			return parseIn(name);
+		}
+		if (isKeyword("BETWEEN")) {
+			next();
+			var from = value();
+			if (!isKeyword("AND")) {
+				throw error("AND expected");
+			}
+			next();
+			return new Expression.Term(new Filter(name, Operator.BW, List.of(from, value())));
+		}
+		var operator = quoted || Objects.isNull(token) ? null : OPERATORS.get(token);
+		if (Objects.isNull(operator)) {
+			throw error("operator expected");
+		}
+		next();
+		return new Expression.Term(new Filter(name, operator, value()));
+	}
+
+	private Expression parseIn(String name) {
+		next();
+		expect("(");
+		var values = new ArrayList<String>();
+		values.add(value());
+		while (isSymbol(",")) {
+			next();
+			values.add(value());
+		}
+		expect(")");
+		return new Expression.Term(new Filter(name, Operator.IN, values));
+	}
+
+	private String value() {
+		if (Objects.isNull(token) || !quoted && SPECIAL_CHARS.indexOf(token.charAt(0)) >= 0) {
+			throw error("value expected");
+		}
+		var value = token;
+		next();
+		return value;
+	}
+
+	private void expect(String symbol) {
+		if (!isSymbol(symbol)) {
+			throw error(symbol + " expected");
+		}
+		next();
+	}
+
+	private boolean isKeyword(String keyword) {
+		return !quoted && keyword.equalsIgnoreCase(token);
+	}
+
+	private boolean isSymbol(String symbol) {
+		return !quoted && symbol.equals(token);
+	}
+
+	private InvalidQueryException error(String message) {
+		return new InvalidQueryException("Query error at " + tokenStart + ": " + message);
+	}
+
+	private void next() {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+		tokenStart = position;
+		quoted = false;
+		if (position >= text.length()) {
+			token = null;
+			return;
+		}
+		var c = text.charAt(position);
+		if ("(),".indexOf(c) >= 0) {
+			token = String.valueOf(c);
+			position++;
+		} else if (c == '\'' || c == '"') {
+			token = readQuoted(c);
+			quoted = true;
+		} else if (OPERATOR_CHARS.indexOf(c) >= 0) {
+			while (position < text.length() && OPERATOR_CHARS.indexOf(text.charAt(position)) >= 0) {
+				position++;
+			}
+			token = text.substring(tokenStart, position);
+		} else {
+			while (position < text.length() && !Character.isWhitespace(text.charAt(position))
+					&& SPECIAL_CHARS.indexOf(text.charAt(position)) < 0) {
+				position++;
+			}
+			token = text.substring(tokenStart, position);
+		}
+	}
+
+	private String readQuoted(char quote) {
+		var out = new StringBuilder();
+		position++;
+		while (position < text.length()) {
+			var c = text.charAt(position++);
+			if (c != quote) {
+				out.append(c);
+			} else if (position < text.length() && text.charAt(position) == quote) {
+				out.append(quote);
+				position++;
+			} else {
+				return out.toString();
+			}
+		}
+		throw error("unterminated quote");
+	}
+
+}
@@ -0,0 +1,153 @@
+package ru.keich.mon.servicemanager.query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import com.hazelcast.config.IndexType;
+import com.hazelcast.query.Predicate;
+import com.hazelcast.query.Predicates;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Compiles a parsed query to a predicate. Nested AND and OR are
+ * flattened and equalities of one attribute under OR become an IN,
+ * so they are one index lookup. AND operands are ordered by cost:
+ * terms a HASH index answers, then terms a SORTED index answers, then
+ * the residual terms, which only filter what the indexes selected.
+ */
+public class QueryPlanner<K, T> {
+
+	static final int COST_HASH = 0;
+	static final int COST_SORTED = 1;
+	static final int COST_SCAN = 2;
+	static final Set<Operator> HASH_OPERATORS = Set.of(Operator.EQ, Operator.IN);
+	static final Set<Operator> SORTED_OPERATORS = Set.of(Operator.EQ, Operator.IN, Operator.LT, Operator.LE,
+			Operator.GT, Operator.GE, Operator.BW, Operator.PR);
+
+	private final Map<String, IndexType> indexes;
+	private final Function<Filter, Predicate<K, T>> compiler;
+
+	public QueryPlanner(Map<String, IndexType> indexes, Function<Filter, Predicate<K, T>> compiler) {
+		super();
+		this.indexes = indexes;
+		this.compiler = compiler;
+	}
+
+	public Predicate<K, T> plan(Expression expression) {
+		return compile(normalize(expression));
+	}
+
+	Expression normalize(Expression expression) {
+		if (expression instanceof Expression.And and) {
+			var operands = new ArrayList<Expression>();
+			and.getOperands().stream()
+					.map(this::normalize)
+					.forEach(operand -> {
+						if (operand instanceof Expression.And nested) {
+							operands.addAll(nested.getOperands());
+						} else {
+							operands.add(operand);
+						}
+					});
+			return operands.size() == 1 ? operands.get(0) : new Expression.And(operands);
+		}
+		if (expression instanceof Expression.Or or) {
+			var operands = new ArrayList<Expression>();
+			var equals = new LinkedHashMap<String, Set<String>>();
+			or.getOperands().stream()
+					.map(this::normalize)
+					.forEach(operand -> {
+						var nested = operand instanceof Expression.Or o ? o.getOperands() : List.of(operand);
+						nested.forEach(e -> {
+							var filter = e instanceof Expression.Term term ? term.getFilter() : null;
+							if (Objects.nonNull(filter) && HASH_OPERATORS.contains(filter.getOperator())) {
+								equals.computeIfAbsent(filter.getName(), k -> new LinkedHashSet<String>())
+										.addAll(filter.getValues());
+							} else {
+								operands.add(e);
+							}
+						});
+					});
+			equals.forEach((name, values) -> operands.add(new Expression.Term(
+					new Filter(name, values.size() == 1 ? Operator.EQ : Operator.IN, List.copyOf(values)))));
+			return operands.size() == 1 ? operands.get(0) : new Expression.Or(operands);
+		}
+		if (expression instanceof Expression.Not not) {
+			var operand = normalize(not.getOperand());
+			return operand instanceof Expression.Not nested ? nested.getOperand() : new Expression.Not(operand);
+		}
+		return expression;
+	}
+
+	/*
+	 * An AND costs as its cheapest operand, it is narrowed by it.
+	 * An OR costs as its dearest one, all branches are evaluated.
+	 */
+	int cost(Expression expression) {
+		if (expression instanceof Expression.Term term) {
+			var filter = term.getFilter();
+			var type = indexes.get(filter.getName());
+			if (type == IndexType.HASH && HASH_OPERATORS.contains(filter.getOperator())) {
+				return COST_HASH;
+			}
+			if (type == IndexType.SORTED && SORTED_OPERATORS.contains(filter.getOperator())) {
+				return COST_SORTED;
+			}
+			return COST_SCAN;
+		}
+		if (expression instanceof Expression.And and) {
+			return and.getOperands().stream().mapToInt(this::cost).min().orElse(COST_SCAN);
+		}
+		if (expression instanceof Expression.Or or) {
+			return or.getOperands().stream().mapToInt(this::cost).max().orElse(COST_SCAN);
+		}
+		return COST_SCAN;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Predicate<K, T> compile(Expression expression) {
+		if (expression instanceof Expression.Term term) {
+			return compiler.apply(term.getFilter());
+		}
+		if (expression instanceof Expression.And and) {
+			if (and.getOperands().isEmpty()) {
+				return Predicates.alwaysTrue();
+			}
+			return Predicates.and(and.getOperands().stream()
+					.sorted(Comparator.comparingInt(this::cost))
+					.map(this::compile)
+					.toArray(Predicate[]::new));
+		}
+		if (expression instanceof Expression.Or or) {
+			return Predicates.or(or.getOperands().stream()
+					.sorted(Comparator.comparingInt(this::cost))
+					.map(this::compile)
+					.toArray(Predicate[]::new));
+		}
+		var not = (Expression.Not) expression;
+		return Predicates.not(compile(not.getOperand()));
+	}
+
+}
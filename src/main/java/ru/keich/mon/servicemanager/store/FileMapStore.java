@@ -0,0 +1,729 @@
+package ru.keich.mon.servicemanager.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import com.hazelcast.cluster.ClusterState;
+import com.hazelcast.cluster.Member;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.core.LifecycleEvent.LifecycleState;
+import com.hazelcast.map.MapLoaderLifecycleSupport;
+import com.hazelcast.map.MapStore;
+import com.hazelcast.partition.MigrationListener;
+import com.hazelcast.partition.MigrationState;
+import com.hazelcast.partition.Partition;
+import com.hazelcast.partition.ReplicaMigrationEvent;
+
+import lombok.extern.java.Log;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Keeps the entries a member owns in its local directory, an append
+ * only log per partition that is compacted into a snapshot when it
+ * outgrows it. Values are written with their compact schemas, so they
+ * are read back without the cluster that wrote them.
+ *
+ * After a restart a key may be found on several members, as partitions
+ * migrate. The initial load asks every member and the latest record
+ * wins, deletions are kept as tombstones for that. Entries are loaded
+ * only by the initial load, a missing key is never looked up.
+ *
+ * A tombstone is dropped after a while, so no older copy of a partition
+ * may outlive it on another member. Once the initial load is over, and
+ * after a partition migrates, its owner writes it anew from memory and
+ * the other members delete their files of it.
+ *
+ * The latest record is the one with the latest wall clock time of the
+ * member that stored it. Member clocks are assumed to agree to well
+ * under the write delay of the map, a member whose clock runs ahead may
+ * win with an older value after a restart.
+ *
+ * Keys are compared by their serialized bytes, see SchemaSerializer.
+ */
+@Log
+public class FileMapStore<K, V> implements MapStore<K, V>, MapLoaderLifecycleSupport {
+
+	public static final String SNAPSHOT_SUFFIX = ".snapshot";
+	public static final String LOG_SUFFIX = ".log";
+	public static final String TMP_SUFFIX = ".tmp";
+	public static final String EXECUTOR_NAME = "fileMapStore";
+	public static final long MIGRATION_DELAY_MILLIS = 1000;
+
+	private final Path directory;
+	private final long compactBytes;
+	private final long tombstoneMillis;
+	private final Map<Integer, Object> locks = new ConcurrentHashMap<Integer, Object>();
+	private final Set<Integer> migrated = ConcurrentHashMap.<Integer>newKeySet();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+	private final AtomicBoolean leaving = new AtomicBoolean();
+	private HazelcastInstance hazelcastInstance;
+	private SchemaSerializer serializer;
+	private String mapName;
+	private Map<ByteBuffer, Record> restored;
+
+	public FileMapStore(Path directory, long compactBytes, long tombstoneMillis) {
+		super();
+		this.directory = directory;
+		this.compactBytes = compactBytes;
+		this.tombstoneMillis = tombstoneMillis;
+	}
+
+	@Override
+	public void init(HazelcastInstance hazelcastInstance, Properties properties, String mapName) {
+		this.hazelcastInstance = hazelcastInstance;
+		this.serializer = new SchemaSerializer(hazelcastInstance);
+		this.mapName = mapName;
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		hazelcastInstance.getPartitionService().addMigrationListener(new OwnerMigrationListener());
+		hazelcastInstance.getLifecycleService().addLifecycleListener(event -> {
+			if (event.getState() == LifecycleState.SHUTTING_DOWN) {
+				flushMigrated();
+				leaving.set(hazelcastInstance.getCluster().getClusterState() == ClusterState.ACTIVE
+						&& hazelcastInstance.getCluster().getMembers().size() > 1);
+			} else if (event.getState() == LifecycleState.SHUTDOWN && leaving.get()) {
+				delete(partitionIds());
+			}
+		});
+	}
+
+	@Override
+	public void destroy() {
+
+	}
+
+	/*
+	 * A value null means the key was deleted.
+	 */
+	static class Record implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final byte[] key;
+		final long storedAt;
+		final byte[] value;
+
+		public Record(byte[] key, long storedAt, byte[] value) {
+			super();
+			this.key = key;
+			this.storedAt = storedAt;
+			this.value = value;
+		}
+
+		public boolean isDeleted() {
+			return Objects.isNull(value);
+		}
+
+		static Record newer(Record a, Record b) {
+			return a.storedAt > b.storedAt ? a : b;
+		}
+
+	}
+
+	@Override
+	public void store(K key, V value) {
+		storeAll(Collections.singletonMap(key, value));
+	}
+
+	@Override
+	public void storeAll(Map<K, V> map) {
+		var storedAt = System.currentTimeMillis();
+		append(map.entrySet()
+				.stream()
+				.collect(Collectors.groupingBy(e -> partitionId(e.getKey()),
+						Collectors.mapping(e -> new Record(toBytes(e.getKey()), storedAt, toBytes(e.getValue())),
+								Collectors.toList()))));
+	}
+
+	@Override
+	public void delete(K key) {
+		deleteAll(Collections.singletonList(key));
+	}
+
+	@Override
+	public void deleteAll(Collection<K> keys) {
+		var storedAt = System.currentTimeMillis();
+		append(keys.stream()
+				.collect(Collectors.groupingBy(this::partitionId,
+						Collectors.mapping(key -> new Record(toBytes(key), storedAt, null), Collectors.toList()))));
+	}
+
+	private int partitionId(K key) {
+		return hazelcastInstance.getPartitionService().getPartition(key).getPartitionId();
+	}
+
+	private byte[] toBytes(Object object) {
+		return serializer.toBytes(object);
+	}
+
+	private <T> T toObject(byte[] bytes) {
+		return serializer.toObject(bytes);
+	}
+
+	private void append(Map<Integer, List<Record>> partitions) {
+		partitions.forEach((partitionId, partition) -> {
+			synchronized (lock(partitionId)) {
+				var logFile = directory.resolve(partitionId + LOG_SUFFIX);
+				try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(logFile,
+						StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+					for (var record : partition) {
+						write(out, record);
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				compactIfDue(partitionId);
+			}
+		});
+	}
+
+	private Object lock(int partitionId) {
+		return locks.computeIfAbsent(partitionId, k -> new Object());
+	}
+
+	private static void write(DataOutputStream out, Record record) throws IOException {
+		out.writeLong(record.storedAt);
+		out.writeInt(record.key.length);
+		out.write(record.key);
+		out.writeInt(record.isDeleted() ? -1 : record.value.length);
+		if (!record.isDeleted()) {
+			out.write(record.value);
+		}
+	}
+
+	/*
+	 * A record cut by a crash ends the file.
+	 */
+	private static void read(Path file, BiConsumer<ByteBuffer, Record> consumer) throws IOException {
+		if (!Files.exists(file)) {
+			return;
+		}
+		try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			while (true) {
+				var storedAt = in.readLong();
+				var key = new byte[in.readInt()];
+				in.readFully(key);
+				var length = in.readInt();
+				byte[] value = null;
+				if (length >= 0) {
+					value = new byte[length];
+					in.readFully(value);
+				}
+				consumer.accept(ByteBuffer.wrap(key), new Record(key, storedAt, value));
+			}
+		} catch (EOFException e) {
+			return;
+		}
+	}
+
+	private static Map<ByteBuffer, Record> readPartition(Path snapshot, Path log) throws IOException {
+		var records = new LinkedHashMap<ByteBuffer, Record>();
+		read(snapshot, records::put);
+		read(log, records::put);
+		return records;
+	}
+
+	/*
+	 * The log is merged into the snapshot when it outgrows it, old
+	 * tombstones are dropped then.
+	 */
+	private void compactIfDue(int partitionId) {
+		var snapshot = directory.resolve(partitionId + SNAPSHOT_SUFFIX);
+		var log = directory.resolve(partitionId + LOG_SUFFIX);
+		try {
+			var logSize = Files.size(log);
+			if (logSize < compactBytes || (Files.exists(snapshot) && logSize < Files.size(snapshot))) {
+				return;
+			}
+			var expired = System.currentTimeMillis() - tombstoneMillis;
+			var tmp = directory.resolve(partitionId + SNAPSHOT_SUFFIX + TMP_SUFFIX);
+			try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				for (var record : readPartition(snapshot, log).values()) {
+					if (!record.isDeleted() || record.storedAt > expired) {
+						write(out, record);
+					}
+				}
+			}
+			Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			Files.delete(log);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private UUID localUuid() {
+		return hazelcastInstance.getCluster().getLocalMember().getUuid();
+	}
+
+	private Set<Integer> ownedPartitions() {
+		var local = localUuid();
+		return hazelcastInstance.getPartitionService()
+				.getPartitions()
+				.stream()
+				.filter(partition -> Objects.nonNull(partition.getOwner())
+						&& local.equals(partition.getOwner().getUuid()))
+				.map(Partition::getPartitionId)
+				.collect(Collectors.toSet());
+	}
+
+	/*
+	 * Writes the snapshots of the partitions the member still owns from
+	 * the entries it holds. Records appended since the entries were read
+	 * are kept, the older ones, tombstones included, are replaced.
+	 */
+	void rewrite(Set<Integer> migratedIds) {
+		var partitionIds = new HashSet<Integer>(migratedIds);
+		partitionIds.retainAll(ownedPartitions());
+		var readAt = System.currentTimeMillis();
+		var map = hazelcastInstance.<K, V>getMap(mapName);
+		var keys = map.localKeySet()
+				.stream()
+				.filter(key -> partitionIds.contains(partitionId(key)))
+				.collect(Collectors.groupingBy(this::partitionId, Collectors.toSet()));
+		for (var partitionId : partitionIds) {
+			var entries = map.getAll(keys.getOrDefault(partitionId, Collections.emptySet()));
+			synchronized (lock(partitionId)) {
+				var snapshot = directory.resolve(partitionId + SNAPSHOT_SUFFIX);
+				var log = directory.resolve(partitionId + LOG_SUFFIX);
+				var tmp = directory.resolve(partitionId + SNAPSHOT_SUFFIX + TMP_SUFFIX);
+				try {
+					var records = new LinkedHashMap<ByteBuffer, Record>();
+					entries.forEach((key, value) -> {
+						var bytes = toBytes(key);
+						records.put(ByteBuffer.wrap(bytes), new Record(bytes, readAt, toBytes(value)));
+					});
+					read(log, (key, record) -> {
+						if (record.storedAt >= readAt) {
+							records.merge(key, record, Record::newer);
+						}
+					});
+					if (records.isEmpty()) {
+						Files.deleteIfExists(snapshot);
+					} else {
+						try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+							for (var record : records.values()) {
+								write(out, record);
+							}
+						}
+						Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING,
+								StandardCopyOption.ATOMIC_MOVE);
+					}
+					Files.deleteIfExists(log);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Ids of the partitions the member has files of.
+	 */
+	private Set<Integer> partitionIds() {
+		try (var files = Files.list(directory)) {
+			return files.map(file -> file.getFileName().toString())
+					.filter(name -> name.endsWith(SNAPSHOT_SUFFIX) || name.endsWith(LOG_SUFFIX))
+					.map(name -> Integer.parseInt(name.substring(0, name.indexOf('.'))))
+					.collect(Collectors.toSet());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void delete(Collection<Integer> partitionIds) {
+		partitionIds.forEach(partitionId -> {
+			synchronized (lock(partitionId)) {
+				try {
+					Files.deleteIfExists(directory.resolve(partitionId + SNAPSHOT_SUFFIX));
+					Files.deleteIfExists(directory.resolve(partitionId + LOG_SUFFIX));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	/*
+	 * Deletes the files of the partitions the member does not own.
+	 */
+	void prune() {
+		var partitionIds = partitionIds();
+		partitionIds.removeAll(ownedPartitions());
+		delete(partitionIds);
+	}
+
+	/*
+	 * The old owner of a partition deletes its files at once, the new
+	 * owner writes the partition after MIGRATION_DELAY_MILLIS, so the
+	 * partitions migrating together are written in one pass. A member
+	 * shutting down writes what it got before it leaves. The events come
+	 * before the local partition table is updated and may come after a
+	 * member has left, so a member leaving an active cluster deletes all
+	 * its files once its partitions are gone.
+	 */
+	private class OwnerMigrationListener implements MigrationListener {
+
+		@Override
+		public void migrationStarted(MigrationState state) {
+
+		}
+
+		@Override
+		public void migrationFinished(MigrationState state) {
+
+		}
+
+		@Override
+		public void replicaMigrationCompleted(ReplicaMigrationEvent event) {
+			if (event.getReplicaIndex() != 0) {
+				return;
+			}
+			var local = localUuid();
+			if (isMember(event.getSource(), local) && !migrated.contains(event.getPartitionId())) {
+				delete(List.of(event.getPartitionId()));
+			}
+			if (isMember(event.getDestination(), local)) {
+				migrated.add(event.getPartitionId());
+				if (flushScheduled.compareAndSet(false, true)) {
+					CompletableFuture.runAsync(FileMapStore.this::flushMigrated,
+							CompletableFuture.delayedExecutor(MIGRATION_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+				}
+			}
+		}
+
+		@Override
+		public void replicaMigrationFailed(ReplicaMigrationEvent event) {
+
+		}
+
+		private boolean isMember(Member member, UUID uuid) {
+			return Objects.nonNull(member) && uuid.equals(member.getUuid());
+		}
+
+	}
+
+	private void flushMigrated() {
+		flushScheduled.set(false);
+		var partitionIds = new HashSet<Integer>(migrated);
+		migrated.removeAll(partitionIds);
+		if (partitionIds.isEmpty()) {
+			return;
+		}
+		try {
+			rewrite(partitionIds);
+		} catch (RuntimeException e) {
+			log.warning("File map store " + directory + " failed to write migrated partitions: " + e);
+		}
+	}
+
+	/*
+	 * The local files are read once, on the first request of the
+	 * initial load, partitions in parallel.
+	 */
+	synchronized Map<ByteBuffer, Record> restored() {
+		if (Objects.isNull(restored)) {
+			var out = new ConcurrentHashMap<ByteBuffer, Record>();
+			try (var files = Files.list(directory)) {
+				files.map(file -> file.getFileName().toString())
+						.filter(name -> name.endsWith(SNAPSHOT_SUFFIX) || name.endsWith(LOG_SUFFIX))
+						.map(name -> name.substring(0, name.indexOf('.')))
+						.distinct()
+						.toList()
+						.parallelStream()
+						.forEach(partition -> {
+							synchronized (lock(Integer.parseInt(partition))) {
+								try {
+									readPartition(directory.resolve(partition + SNAPSHOT_SUFFIX),
+											directory.resolve(partition + LOG_SUFFIX))
+											.forEach((key, record) -> out.merge(key, record, Record::newer));
+								} catch (IOException e) {
+									throw new UncheckedIOException(e);
+								}
+							}
+						});
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			log.info("File map store " + directory + " restored " + out.size() + " records");
+			restored = out;
+		}
+		return restored;
+	}
+
+	/*
+	 * Drops the restored records once the initial load is over.
+	 */
+	synchronized void release() {
+		restored = Collections.emptyMap();
+	}
+
+	@Override
+	public V load(K key) {
+		return null;
+	}
+
+	@Override
+	public Map<K, V> loadAll(Collection<K> keys) {
+		var requested = keys.stream()
+				.map(this::toBytes)
+				.toList();
+		var latest = new HashMap<ByteBuffer, Record>();
+		onAllMembers(new LocalRecords(mapName, requested)).forEach(records -> records
+				.forEach(record -> latest.merge(ByteBuffer.wrap(record.key), record, Record::newer)));
+		var out = new HashMap<K, V>(latest.size());
+		latest.values()
+				.stream()
+				.filter(record -> !record.isDeleted())
+				.forEach(record -> out.put(toObject(record.key), toObject(record.value)));
+		return out;
+	}
+
+	@Override
+	public Iterable<K> loadAllKeys() {
+		var keys = new HashMap<ByteBuffer, byte[]>();
+		onAllMembers(new LocalKeys(mapName)).forEach(memberKeys -> memberKeys
+				.forEach(key -> keys.putIfAbsent(ByteBuffer.wrap(key), key)));
+		return keys.values()
+				.stream()
+				.<K>map(this::toObject)
+				.toList();
+	}
+
+	private <T> List<T> onAllMembers(Callable<T> task) {
+		return onAllMembers(hazelcastInstance, task);
+	}
+
+	private static <T> List<T> onAllMembers(HazelcastInstance hazelcastInstance, Callable<T> task) {
+		return hazelcastInstance.getExecutorService(EXECUTOR_NAME)
+				.submitToAllMembers(task)
+				.values()
+				.stream()
+				.map(FileMapStore::join)
+				.toList();
+	}
+
+	private static <T> T join(Future<T> future) {
+		try {
+			return future.get();
+		} catch (Exception e) {
+			throw new IllegalStateException("File map store request failed", e);
+		}
+	}
+
+	/*
+	 * Time of the last record of the map over the members with records,
+	 * the oldest one, as every member stopped writing at its own time.
+	 */
+	public static Optional<Long> lastStoredAt(HazelcastInstance hazelcastInstance, String mapName) {
+		return onAllMembers(hazelcastInstance, new LocalLastStoredAt(mapName)).stream()
+				.filter(Objects::nonNull)
+				.min(Long::compare);
+	}
+
+	/*
+	 * Ends the initial load: every member writes the partitions it owns
+	 * and only then the files of the other partitions are deleted.
+	 */
+	public static void release(HazelcastInstance hazelcastInstance, String mapName) {
+		onAllMembers(hazelcastInstance, new LocalRelease(mapName));
+		onAllMembers(hazelcastInstance, new LocalPrune(mapName));
+	}
+
+	/*
+	 * For a member joining a running cluster, its files are older than
+	 * the cluster. The partitions it gets are written on migration.
+	 */
+	public static void prune(HazelcastInstance hazelcastInstance, String mapName) {
+		of(hazelcastInstance, mapName).ifPresent(store -> {
+			store.release();
+			store.prune();
+		});
+	}
+
+	private static Optional<FileMapStore<?, ?>> of(HazelcastInstance hazelcastInstance, String mapName) {
+		var implementation = hazelcastInstance.getConfig()
+				.getMapConfig(mapName)
+				.getMapStoreConfig()
+				.getImplementation();
+		return implementation instanceof FileMapStore<?, ?> store ? Optional.of(store) : Optional.empty();
+	}
+
+	/*
+	 * Member side tasks, they find the store of the map in the member
+	 * config. A member without the store answers with nothing.
+	 */
+	static abstract class LocalTask<T> implements Callable<T>, HazelcastInstanceAware, Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final String mapName;
+		protected transient HazelcastInstance hazelcastInstance;
+
+		public LocalTask(String mapName) {
+			super();
+			this.mapName = mapName;
+		}
+
+		@Override
+		public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+			this.hazelcastInstance = hazelcastInstance;
+		}
+
+		protected Optional<FileMapStore<?, ?>> store() {
+			return of(hazelcastInstance, mapName);
+		}
+
+	}
+
+	static class LocalKeys extends LocalTask<ArrayList<byte[]>> {
+
+		private static final long serialVersionUID = 1L;
+
+		public LocalKeys(String mapName) {
+			super(mapName);
+		}
+
+		@Override
+		public ArrayList<byte[]> call() {
+			return store().map(store -> store.restored()
+					.values()
+					.stream()
+					.filter(record -> !record.isDeleted())
+					.map(record -> record.key)
+					.collect(Collectors.toCollection(ArrayList<byte[]>::new)))
+					.orElse(new ArrayList<byte[]>());
+		}
+
+	}
+
+	static class LocalRecords extends LocalTask<ArrayList<Record>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<byte[]> keys;
+
+		public LocalRecords(String mapName, List<byte[]> keys) {
+			super(mapName);
+			this.keys = new ArrayList<byte[]>(keys);
+		}
+
+		@Override
+		public ArrayList<Record> call() {
+			return store().map(store -> {
+				var restored = store.restored();
+				return keys.stream()
+						.map(key -> restored.get(ByteBuffer.wrap(key)))
+						.filter(Objects::nonNull)
+						.collect(Collectors.toCollection(ArrayList<Record>::new));
+			}).orElse(new ArrayList<Record>());
+		}
+
+	}
+
+	static class LocalLastStoredAt extends LocalTask<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		public LocalLastStoredAt(String mapName) {
+			super(mapName);
+		}
+
+		@Override
+		public Long call() {
+			return store().flatMap(store -> store.restored()
+					.values()
+					.stream()
+					.map(record -> record.storedAt)
+					.max(Long::compare))
+					.orElse(null);
+		}
+
+	}
+
+	static class LocalRelease extends LocalTask<Boolean> {
+
+		private static final long serialVersionUID = 1L;
+
+		public LocalRelease(String mapName) {
+			super(mapName);
+		}
+
+		@Override
+		public Boolean call() {
+			store().ifPresent(store -> {
+				store.release();
+				store.rewrite(store.ownedPartitions());
+			});
+			return true;
+		}
+
+	}
+
+	static class LocalPrune extends LocalTask<Boolean> {
+
+		private static final long serialVersionUID = 1L;
+
+		public LocalPrune(String mapName) {
+			super(mapName);
+		}
+
+		@Override
+		public Boolean call() {
+			store().ifPresent(FileMapStore::prune);
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,47 @@
+package ru.keich.mon.servicemanager.store;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.internal.serialization.impl.HeapData;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The only use of Hazelcast internals by the store. The public API can
+ * not write a value together with its compact schema, and the files are
+ * read back before any member knows the schemas. Written against
+ * Hazelcast 5.4, FileMapStoreTest covers a restart from the files.
+ */
+class SchemaSerializer {
+
+	private final SerializationService serializationService;
+
+	public SchemaSerializer(HazelcastInstance hazelcastInstance) {
+		super();
+		this.serializationService = ((SerializationServiceSupport) hazelcastInstance).getSerializationService();
+	}
+
+	public byte[] toBytes(Object object) {
+		return serializationService.toDataWithSchema(object).toByteArray();
+	}
+
+	public <T> T toObject(byte[] bytes) {
+		return serializationService.toObject(new HeapData(bytes));
+	}
+
+}
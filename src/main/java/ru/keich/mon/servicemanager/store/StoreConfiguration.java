@@ -0,0 +1,71 @@
+package ru.keich.mon.servicemanager.store;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.hazelcast.HazelcastConfigCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.hazelcast.config.MapStoreConfig;
+import com.hazelcast.config.MapStoreConfig.InitialLoadMode;
+
+import ru.keich.mon.servicemanager.event.EventService;
+import ru.keich.mon.servicemanager.item.ItemService;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Items and events are written behind to the local directory and
+ * loaded eagerly when the cluster starts.
+ */
+@Configuration
+@ConditionalOnProperty(name = StoreConfiguration.PROPERTY_ENABLED, havingValue = "true")
+public class StoreConfiguration {
+
+	public static final String PROPERTY_ENABLED = "ru.keich.mon.servicemanager.store.enabled";
+	/*
+	 * A graceful shutdown writes the pending entries out.
+	 */
+	public static final String PROPERTY_SHUTDOWNHOOK_POLICY = "hazelcast.shutdownhook.policy";
+	public static final List<String> STORED_MAPS = List.of(ItemService.NAME_ITEMS_MAP, EventService.NAME_EVENTS_MAP);
+
+	@Bean
+	public HazelcastConfigCustomizer fileMapStoreCustomizer(
+			@Value("${ru.keich.mon.servicemanager.store.directory:store}") String directory,
+			@Value("${ru.keich.mon.servicemanager.store.writedelayseconds:1}") Integer writeDelaySeconds,
+			@Value("${ru.keich.mon.servicemanager.store.writebatchsize:1000}") Integer writeBatchSize,
+			@Value("${ru.keich.mon.servicemanager.store.compactbytes:16777216}") Long compactBytes,
+			@Value("${ru.keich.mon.servicemanager.store.tombstonehours:168}") Long tombstoneHours) {
+		return config -> {
+			config.setProperty(PROPERTY_SHUTDOWNHOOK_POLICY, "GRACEFUL");
+			STORED_MAPS.forEach(mapName -> config.getMapConfig(mapName)
+					.setMapStoreConfig(new MapStoreConfig()
+							.setEnabled(true)
+							.setImplementation(new FileMapStore<Object, Object>(Path.of(directory, mapName),
+									compactBytes, Duration.ofHours(tombstoneHours).toMillis()))
+							.setInitialLoadMode(InitialLoadMode.EAGER)
+							.setWriteDelaySeconds(writeDelaySeconds)
+							.setWriteBatchSize(writeBatchSize)
+							.setWriteCoalescing(true)));
+		};
+	}
+
+}
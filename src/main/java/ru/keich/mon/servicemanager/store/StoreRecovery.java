@@ -0,0 +1,111 @@
+package ru.keich.mon.servicemanager.store;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.hazelcast.cluster.MembershipAdapter;
+import com.hazelcast.cluster.MembershipEvent;
+import com.hazelcast.core.HazelcastInstance;
+
+import lombok.extern.java.Log;
+import ru.keich.mon.servicemanager.item.ItemService;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Runs once per cluster start, on the first member that gets here.
+ * Events written since the items were last stored, less the recover
+ * margin, are matched again, the rest is rebuilt from the items.
+ * A member joining after that drops its files, they are older than
+ * what the cluster holds.
+ */
+@Component
+@ConditionalOnProperty(name = StoreConfiguration.PROPERTY_ENABLED, havingValue = "true")
+@Log
+public class StoreRecovery {
+
+	public static final String NAME_RECOVERY_MAP = "storeRecovery";
+	public static final String KEY_CLAIM = "claim";
+	public static final String KEY_RECOVERED = "recovered";
+
+	private final HazelcastInstance hazelcastInstance;
+	private final ItemService itemService;
+	private final long recoverMillis;
+
+	public StoreRecovery(HazelcastInstance hazelcastInstance, ItemService itemService,
+			@Value("${ru.keich.mon.servicemanager.store.recoverseconds:60}") Long recoverSeconds) {
+		super();
+		this.hazelcastInstance = hazelcastInstance;
+		this.itemService = itemService;
+		this.recoverMillis = recoverSeconds * 1000;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void recover() {
+		hazelcastInstance.getCluster().addMembershipListener(new ClaimRelease());
+		claim();
+	}
+
+	private void claim() {
+		var memberId = hazelcastInstance.getCluster().getLocalMember().getUuid().toString();
+		var recovery = hazelcastInstance.<String, String>getMap(NAME_RECOVERY_MAP);
+		if (Objects.nonNull(recovery.putIfAbsent(KEY_CLAIM, memberId))) {
+			if (recovery.containsKey(KEY_RECOVERED)) {
+				StoreConfiguration.STORED_MAPS.forEach(mapName -> FileMapStore.prune(hazelcastInstance, mapName));
+			}
+			return;
+		}
+		var since = FileMapStore.lastStoredAt(hazelcastInstance, ItemService.NAME_ITEMS_MAP)
+				.map(storedAt -> LocalDateTime.ofInstant(Instant.ofEpochMilli(storedAt - recoverMillis),
+						ZoneId.systemDefault()));
+		log.info("Store recovery, events since " + since.map(LocalDateTime::toString).orElse("none"));
+		itemService.recover(since);
+		recovery.put(KEY_RECOVERED, memberId);
+		StoreConfiguration.STORED_MAPS.forEach(mapName -> FileMapStore.release(hazelcastInstance, mapName));
+	}
+
+	/*
+	 * A member that leaves before its recovery is over keeps the claim.
+	 * The claim is dropped then and the members left claim it again.
+	 */
+	private class ClaimRelease extends MembershipAdapter {
+
+		@Override
+		public void memberRemoved(MembershipEvent event) {
+			var recovery = hazelcastInstance.<String, String>getMap(NAME_RECOVERY_MAP);
+			if (recovery.containsKey(KEY_RECOVERED)) {
+				return;
+			}
+			recovery.remove(KEY_CLAIM, event.getMember().getUuid().toString());
+			CompletableFuture.runAsync(StoreRecovery.this::claim).exceptionally(e -> {
+				log.warning("Store recovery failed: " + e);
+				return null;
+			});
+		}
+
+	}
+
+}
@@ -0,0 +1,70 @@
+package ru.keich.mon.servicemanager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hazelcast.core.HazelcastInstance;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@SpringBootTest
+public class CoalescingQueueTest {
+
+	@Autowired
+	private HazelcastInstance hazelcastInstance;
+
+	private List<String> drain(CoalescingQueue<String> queue) {
+		var polled = new ArrayList<String>();
+		queue.getQueue().drainTo(polled);
+		return queue.take(polled);
+	}
+
+	@Test
+	public void coalesce() {
+		var queue = new CoalescingQueue<String>(hazelcastInstance, "testCoalesce", true, Function.identity());
+		queue.add("a");
+		queue.addAll(List.of("a", "b"));
+		assertEquals(List.of("a", "b"), drain(queue));
+		queue.add("a");
+		assertEquals(List.of("a"), drain(queue));
+	}
+
+	@Test
+	public void lostPendingKey() throws InterruptedException {
+		var queue = new CoalescingQueue<String>(hazelcastInstance, "testLostPending", true, Function.identity(), 200);
+		queue.add("a");
+		queue.getQueue().clear();
+		queue.add("a");
+		assertEquals(0, queue.getQueue().size());
+		Thread.sleep(250);
+		queue.add("a");
+		assertEquals(List.of("a"), drain(queue));
+
+		queue.add("b");
+		queue.getQueue().clear();
+		queue.requeueAll(List.of("b"));
+		assertEquals(List.of("b"), drain(queue));
+	}
+
+}
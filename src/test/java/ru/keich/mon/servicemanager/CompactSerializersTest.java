@@ -0,0 +1,197 @@
+package ru.keich.mon.servicemanager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.nio.serialization.genericrecord.GenericRecordBuilder;
+import com.hazelcast.spi.impl.SerializationServiceSupport;
+
+import ru.keich.mon.servicemanager.event.Event;
+import ru.keich.mon.servicemanager.event.Event.EventType;
+import ru.keich.mon.servicemanager.event.EventService;
+import ru.keich.mon.servicemanager.item.Item;
+import ru.keich.mon.servicemanager.item.ItemFilter;
+import ru.keich.mon.servicemanager.item.ItemRule;
+import ru.keich.mon.servicemanager.mapstatus.MapStatus;
+import ru.keich.mon.servicemanager.query.Filter;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@SpringBootTest
+public class CompactSerializersTest {
+
+	@Autowired
+	private HazelcastInstance hazelcastInstance;
+
+	@Autowired
+	private EventService eventService;
+
+	private <T> T roundTrip(T object) {
+		SerializationService ss = ((SerializationServiceSupport) hazelcastInstance).getSerializationService();
+		return ss.toObject(ss.toData(object));
+	}
+
+	private <T> T fromRecord(GenericRecordBuilder builder) {
+		SerializationService ss = ((SerializationServiceSupport) hazelcastInstance).getSerializationService();
+		return ss.toObject(ss.toData(builder.build()));
+	}
+
+	@Test
+	public void itemRoundTrip() {
+		var now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+		var item = new Item("compact_item_1", "compact_src", "compact_key");
+		item.setCreatedOn(now);
+		item.setUpdatedOn(now);
+		item.setFields(Map.of("host", "h1"));
+		item.setStatus(BaseStatus.MAJOR);
+		var rule = new ItemRule();
+		rule.setType(ItemRule.RuleType.CLUSTER);
+		rule.setStatusThreshold(BaseStatus.WARNING);
+		rule.setValueThreshold(50);
+		item.setRules(Map.of("rule1", rule));
+		var filter = new ItemFilter();
+		filter.setResultStatus(BaseStatus.CRITICAL);
+		filter.setUsingResultStatus(true);
+		filter.setEqualFields(Map.of("node", "n1"));
+		item.setFilters(Map.of("filter1", filter));
+		item.setChildrenIds(new String[] { "child1", "child2" });
+		item.setHasChildren(true);
+		item.setName("compact");
+		item.getEventsStatus().put("event1", BaseStatus.WARNING);
+		item.getChildStatus().put("child1", BaseStatus.CRITICAL);
+		item.setStatusVersion(7);
+		item.getChildStatusVersion().put("child1", 3L);
+
+		var copy = roundTrip(item);
+		assertEquals(item.getId(), copy.getId());
+		assertEquals(item.getSource(), copy.getSource());
+		assertEquals(item.getSourceKey(), copy.getSourceKey());
+		assertEquals(now, copy.getCreatedOn());
+		assertEquals(now, copy.getUpdatedOn());
+		assertEquals(item.getFields(), copy.getFields());
+		assertEquals(BaseStatus.MAJOR, copy.getStatus());
+		assertEquals(ItemRule.RuleType.CLUSTER, copy.getRules().get("rule1").getType());
+		assertEquals(BaseStatus.WARNING, copy.getRules().get("rule1").getStatusThreshold());
+		assertEquals(50, copy.getRules().get("rule1").getValueThreshold());
+		assertEquals(BaseStatus.CRITICAL, copy.getFilters().get("filter1").getResultStatus());
+		assertTrue(copy.getFilters().get("filter1").isUsingResultStatus());
+		assertEquals(Map.of("node", "n1"), copy.getFilters().get("filter1").getEqualFields());
+		assertArrayEquals(item.getChildrenIds(), copy.getChildrenIds());
+		assertTrue(copy.isHasChildren());
+		assertEquals("compact", copy.getName());
+		assertEquals(BaseStatus.WARNING, copy.getEventsStatus().getMaxStatus());
+		assertEquals(BaseStatus.CRITICAL, copy.getChildStatus().getMaxStatus());
+		assertEquals(1, copy.getChildStatus().countAtLeast(BaseStatus.CRITICAL));
+		assertEquals(7, copy.getStatusVersion());
+		assertEquals(Map.of("child1", 3L), copy.getChildStatusVersion());
+	}
+
+	@Test
+	public void eventRoundTrip() {
+		var event = new Event("compact_event_1", "compact_src", "compact_key", EventType.PROBLEM, BaseStatus.WARNING);
+		event.setFields(Map.of("node", "n1"));
+		event.setNode("n1");
+		event.setSummary("summary");
+
+		var copy = roundTrip(event);
+		assertEquals(event.getId(), copy.getId());
+		assertEquals(EventType.PROBLEM, copy.getType());
+		assertEquals(BaseStatus.WARNING, copy.getStatus());
+		assertEquals(event.getCreatedOn().truncatedTo(ChronoUnit.MILLIS), copy.getCreatedOn());
+		assertEquals(event.getFields(), copy.getFields());
+		assertEquals("n1", copy.getNode());
+		assertEquals("summary", copy.getSummary());
+	}
+
+	@Test
+	public void mapStatusRoundTrip() {
+		var mapStatus = new MapStatus();
+		mapStatus.put("a", BaseStatus.INFORMATION);
+		mapStatus.put("b", BaseStatus.MAJOR);
+		mapStatus.put("c", BaseStatus.MAJOR);
+
+		var copy = roundTrip(mapStatus);
+		assertEquals(3, copy.size());
+		assertEquals(BaseStatus.MAJOR, copy.getMaxStatus());
+		assertEquals(2, copy.count(BaseStatus.MAJOR));
+		copy.remove("b");
+		copy.remove("c");
+		assertEquals(BaseStatus.INFORMATION, copy.getMaxStatus());
+	}
+
+	@Test
+	public void stringKeyValueRoundTrip() {
+		var kv = new StringKeyValue("key", "value");
+		assertEquals(kv, roundTrip(kv));
+	}
+
+	@Test
+	public void oldSchemaReadsDefaults() {
+		var item = this.<Item>fromRecord(GenericRecordBuilder.compact("Item")
+				.setString("id", "compact_item_old")
+				.setString("source", "compact_src")
+				.setString("sourceKey", "compact_key")
+				.setInt32("status", BaseStatus.WARNING.ordinal()));
+		assertEquals("compact_item_old", item.getId());
+		assertEquals(BaseStatus.WARNING, item.getStatus());
+		assertEquals("", item.getName());
+		assertEquals(0, item.getChildrenIds().length);
+		assertTrue(item.getFields().isEmpty());
+		assertTrue(item.getRules().isEmpty());
+		assertEquals(BaseStatus.CLEAR, item.getEventsStatus().getMaxStatus());
+		assertEquals(0, item.getStatusVersion());
+		assertTrue(item.getChildStatusVersion().isEmpty());
+
+		var event = this.<Event>fromRecord(GenericRecordBuilder.compact("Event")
+				.setString("id", "compact_event_old")
+				.setString("source", "compact_src")
+				.setString("sourceKey", "compact_key")
+				.setInt32("type", EventType.RESOLUTION.ordinal())
+				.setInt32("status", BaseStatus.CLEAR.ordinal())
+				.setString("unknown", "ignored"));
+		assertEquals(EventType.RESOLUTION, event.getType());
+		assertEquals("", event.getNode());
+		assertTrue(event.getFields().isEmpty());
+	}
+
+	@Test
+	public void queryByStoredOrdinals() {
+		var event = new Event("compact_event_query", "compact_query_src", "compact_key", EventType.PROBLEM,
+				BaseStatus.MAJOR);
+		eventService.addOrUpdate(event);
+		var source = new Filter("source", "eq:compact_query_src");
+		assertEquals(1, eventService.query(List.of(source, new Filter("status", "eq:MAJOR"))).size());
+		assertEquals(1, eventService.query(List.of(source, new Filter("status", "gt:WARNING"))).size());
+		assertEquals(0, eventService.query(List.of(source, new Filter("status", "eq:CRITICAL"))).size());
+		assertEquals(1, eventService.query(List.of(source, new Filter("type", "eq:problem"))).size());
+		assertEquals(0, eventService.query(List.of(source, new Filter("type", "eq:RESOLUTION"))).size());
+		eventService.deleteById(event.getId());
+	}
+
+}
@@ -0,0 +1,127 @@
+package ru.keich.mon.servicemanager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hazelcast.core.HazelcastInstance;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@SpringBootTest
+public class QueueThreadReaderTest {
+
+	@Autowired
+	private HazelcastInstance hazelcastInstance;
+
+	private CoalescingQueue<String> queue(String name) {
+		return new CoalescingQueue<String>(hazelcastInstance, name, false, Function.identity());
+	}
+
+	private static List<String> values(String prefix, int number) {
+		var out = new ArrayList<String>();
+		for (int i = 0; i < number; i++) {
+			out.add(prefix + i);
+		}
+		return out;
+	}
+
+	@Test
+	public void drainBatches() throws InterruptedException {
+		var queue = queue("testReaderDrain");
+		queue.addAll(values("a", 10));
+		var batches = new CopyOnWriteArrayList<List<String>>();
+		var done = new CountDownLatch(10);
+		new QueueThreadReader<String>(queue, "testReaderDrain", 1, 4, 0, batch -> {
+			batches.add(batch);
+			batch.forEach(v -> done.countDown());
+		});
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(List.of(4, 4, 2), batches.stream().map(List::size).toList());
+		assertEquals(values("a", 10), batches.stream().flatMap(List::stream).toList());
+	}
+
+	@Test
+	public void lingerFillsBatch() throws InterruptedException {
+		var queue = queue("testReaderLinger");
+		var batches = new CopyOnWriteArrayList<List<String>>();
+		var done = new CountDownLatch(5);
+		new QueueThreadReader<String>(queue, "testReaderLinger", 1, 5, 2000, batch -> {
+			batches.add(batch);
+			batch.forEach(v -> done.countDown());
+		});
+		var values = values("b", 5);
+		queue.add(values.get(0));
+		Thread.sleep(100);
+		queue.addAll(values.subList(1, values.size()));
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(List.of(values), batches);
+	}
+
+	@Test
+	public void readerSurvivesException() throws InterruptedException {
+		var queue = queue("testReaderException");
+		var consumed = new CopyOnWriteArrayList<String>();
+		var done = new CountDownLatch(1);
+		new QueueThreadReader<String>(queue, "testReaderException", 1, 1, 0, batch -> {
+			if (batch.contains("fail")) {
+				throw new IllegalStateException("consumer failed");
+			}
+			consumed.addAll(batch);
+			done.countDown();
+		});
+		queue.add("fail");
+		queue.add("next");
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(List.of("next"), consumed);
+	}
+
+	/*
+	 * Without a Java 21 runtime the virtual mode runs on platform
+	 * threads, in both cases the queue must be drained.
+	 */
+	@Test
+	public void virtualDrains() throws Exception {
+		var queue = queue("testReaderVirtual");
+		var threads = new CopyOnWriteArrayList<Thread>();
+		var done = new CountDownLatch(20);
+		new QueueThreadReader<String>(queue, "testReaderVirtual", 4, 5, 0, true, batch -> {
+			threads.add(Thread.currentThread());
+			batch.forEach(v -> done.countDown());
+		});
+		queue.addAll(values("c", 20));
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, queue.getQueue().size());
+		for (var thread : threads) {
+			assertTrue(thread.getName().contains("testreadervirtual"));
+			if (QueueThreadReader.isVirtualSupported()) {
+				assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+package ru.keich.mon.servicemanager.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.hazelcast.config.ClasspathYamlConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.entity.EntityService.UpsertMode;
+import ru.keich.mon.servicemanager.event.Event;
+import ru.keich.mon.servicemanager.event.Event.EventType;
+import ru.keich.mon.servicemanager.event.EventService;
+import ru.keich.mon.servicemanager.item.Item;
+import ru.keich.mon.servicemanager.item.ItemProperties;
+import ru.keich.mon.servicemanager.item.ItemService;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * The entry processors and the lock fallback must merge the same way.
+ */
+public class EntityUpsertTest {
+
+	private static HazelcastInstance start() {
+		var config = new ClasspathYamlConfig("hazelcast.yaml");
+		config.setClusterName("entityUpsertTest");
+		return Hazelcast.newHazelcastInstance(config);
+	}
+
+	private static ItemService itemService(HazelcastInstance hazelcastInstance, EventService eventService,
+			UpsertMode upsertMode) {
+		var properties = new ItemProperties();
+		properties.setQueueThreadNumber(1);
+		return new ItemService(hazelcastInstance, eventService, properties, false, upsertMode, true, 60000L, 60L);
+	}
+
+	@ParameterizedTest
+	@EnumSource(UpsertMode.class)
+	public void eventUpsert(UpsertMode upsertMode) throws InterruptedException {
+		var hazelcastInstance = start();
+		try {
+			var eventService = new EventService(hazelcastInstance, upsertMode, true, 60000L, 60L);
+			var id = "id_eventUpsert" + upsertMode;
+			eventService.addOrUpdate(new Event(id, "src_eventUpsert", "src_key", EventType.PROBLEM, BaseStatus.MAJOR));
+			var first = eventService.findById(id);
+			Thread.sleep(10);
+
+			eventService.addOrUpdate(new Event(id, "src_eventUpsert", "src_key", EventType.PROBLEM, BaseStatus.MAJOR));
+			assertEquals(first.getUpdatedOn(), eventService.findById(id).getUpdatedOn());
+
+			eventService.addOrUpdate(List.of(new Event(id, "src_eventUpsert", "src_key", EventType.PROBLEM,
+					BaseStatus.CRITICAL)));
+			var changed = eventService.findById(id);
+			assertEquals(BaseStatus.CRITICAL, changed.getStatus());
+			assertEquals(first.getCreatedOn(), changed.getCreatedOn());
+			assertTrue(changed.getUpdatedOn().isAfter(first.getUpdatedOn()));
+		} finally {
+			hazelcastInstance.shutdown();
+		}
+	}
+
+	private static Item item(String id, String name) {
+		var item = new Item(id, "src_itemUpsert", "src_key");
+		item.setName(name);
+		item.setCreatedOn(LocalDateTime.now());
+		item.setUpdatedOn(item.getCreatedOn());
+		return item;
+	}
+
+	@ParameterizedTest
+	@EnumSource(UpsertMode.class)
+	public void itemUpsert(UpsertMode upsertMode) throws InterruptedException {
+		var hazelcastInstance = start();
+		try {
+			var eventService = new EventService(hazelcastInstance, upsertMode, true, 60000L, 60L);
+			var itemService = itemService(hazelcastInstance, eventService, upsertMode);
+			var id = "id_itemUpsert" + upsertMode;
+			itemService.addOrUpdate(item(id, "first"));
+			var first = itemService.findById(id);
+			assertNotEquals(0, first.getStatusVersion());
+
+			var items = hazelcastInstance.<String, Item>getMap(ItemService.NAME_ITEMS_MAP);
+			first.getEventsStatus().put("id_itemUpsertEvent", BaseStatus.MAJOR);
+			first.setStatus(BaseStatus.MAJOR);
+			first.setStatusVersion(first.getStatusVersion() + 1);
+			items.set(id, first);
+			Thread.sleep(10);
+
+			itemService.addOrUpdate(List.of(item(id, "renamed")));
+			var changed = itemService.findById(id);
+			assertEquals("renamed", changed.getName());
+			assertEquals(first.getCreatedOn(), changed.getCreatedOn());
+			assertEquals(first.getStatusVersion(), changed.getStatusVersion());
+			assertEquals(BaseStatus.MAJOR, changed.getStatus());
+			assertEquals(BaseStatus.MAJOR, changed.getEventsStatus().get("id_itemUpsertEvent"));
+			assertTrue(changed.getUpdatedOn().isAfter(first.getUpdatedOn()));
+		} finally {
+			hazelcastInstance.shutdown();
+		}
+	}
+
+}
@@ -8,19 +8,30 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -37,6 +48,9 @@ public class ControllersTest {
 	@Autowired
 	private TestRestTemplate restTemplate;
 
+	@LocalServerPort
+	private int port;
+
 	private List<Event> eventGetBySourceEqual(String source) {
 		var result = restTemplate.exchange("/api/v1/event?source=eq:" + source,
 				HttpMethod.GET, null, new ParameterizedTypeReference<List<Event>>() {});
@@ -631,6 +645,49 @@ public class ControllersTest {
 		
 	}
 	
+	private Item treeItem(String id, String... childrenIds) {
+		var item = new Item(id, "src_itemTreeShared", "src_key_itemTreeShared");
+		item.setChildrenIds(childrenIds);
+		return item;
+	}
+
+	private List<String> childIds(Item item) {
+		return Objects.isNull(item.getChildren()) ? List.of()
+				: item.getChildren().stream().map(Item::getId).toList();
+	}
+
+	@Test
+	public void itemTreeShared() {
+		entityAdd("/item", new Item[] {
+				treeItem("id_itemTreeSharedRoot", "id_itemTreeSharedB", "id_itemTreeSharedC", "id_itemTreeSharedD"),
+				treeItem("id_itemTreeSharedB", "id_itemTreeSharedD"),
+				treeItem("id_itemTreeSharedC", "id_itemTreeSharedD"),
+				treeItem("id_itemTreeSharedD", "id_itemTreeSharedE"),
+				treeItem("id_itemTreeSharedE", "id_itemTreeSharedRoot") });
+
+		var root = itemGetTree("id_itemTreeSharedRoot");
+		assertEquals(List.of("id_itemTreeSharedB", "id_itemTreeSharedC", "id_itemTreeSharedD"), childIds(root));
+		for (var child : root.getChildren().subList(0, 2)) {
+			var shared = child.getChildren().get(0);
+			assertEquals("id_itemTreeSharedD", shared.getId());
+			assertEquals(List.of("id_itemTreeSharedE"), childIds(shared));
+			var cycle = shared.getChildren().get(0).getChildren().get(0);
+			assertEquals("id_itemTreeSharedRoot", cycle.getId());
+			assertEquals(List.of(), childIds(cycle));
+		}
+		assertEquals(List.of("id_itemTreeSharedE"), childIds(root.getChildren().get(2)));
+
+		var result = restTemplate.getForEntity("/api/v1/item/id_itemTreeSharedRoot/tree?depth=1", Item.class);
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		assertEquals(3, childIds(result.getBody()).size());
+		result.getBody().getChildren().forEach(child -> assertEquals(List.of(), childIds(child)));
+
+		result = restTemplate.getForEntity("/api/v1/item/id_itemTreeSharedRoot/tree?limit=3", Item.class);
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		assertEquals(List.of("id_itemTreeSharedB", "id_itemTreeSharedC"), childIds(result.getBody()));
+		result.getBody().getChildren().forEach(child -> assertEquals(List.of(), childIds(child)));
+	}
+
 	@Test
 	public void updateItemAndKeepStatus()  throws IOException, InterruptedException {
 		var json = """
@@ -700,4 +757,381 @@ public class ControllersTest {
 		assertEquals(BaseStatus.WARNING, retItem.getStatus());
 	}
 
+	@Test
+	public void eventRepeatIsNotWritten() throws InterruptedException {
+		final var id = "id_eventRepeatIsNotWritten";
+		final var source = "src_eventRepeatIsNotWritten";
+		final var sourceKey = "src_key_eventRepeatIsNotWritten";
+		entityAdd("/event", new Event(id, source, sourceKey, EventType.PROBLEM, BaseStatus.WARNING));
+		var first = entityGetById("/event", id, Event.class);
+		Thread.sleep(10);
+		entityAdd("/event", new Event(id, source, sourceKey, EventType.PROBLEM, BaseStatus.WARNING));
+		var repeat = entityGetById("/event", id, Event.class);
+		assertEquals(first.getUpdatedOn(), repeat.getUpdatedOn());
+		Thread.sleep(10);
+		entityAdd("/event", new Event(id, source, sourceKey, EventType.PROBLEM, BaseStatus.MAJOR));
+		var changed = entityGetById("/event", id, Event.class);
+		assertEquals(BaseStatus.MAJOR, changed.getStatus());
+		assertNotEquals(first.getUpdatedOn(), changed.getUpdatedOn());
+	}
+
+	@Test
+	public void metricsExposed() {
+		entityAdd("/event", new Event("id_metricsExposed", "src_metricsExposed", "src_key_metricsExposed",
+				EventType.PROBLEM, BaseStatus.WARNING));
+		var result = restTemplate.getForEntity("/actuator/metrics", String.class);
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		assertThat(result.getBody()).contains("servicemanager.ingest.entities")
+				.contains("servicemanager.queue.size")
+				.contains("servicemanager.queue.lag")
+				.contains("servicemanager.item.match");
+	}
+
+	@Test
+	public void itemTreeSubscribe() throws IOException, InterruptedException {
+		var json = """
+				 [{
+			        "id": "id_itemTreeSubscribeRoot",
+			        "source": "src_itemTreeSubscribe",
+			        "sourceKey": "src_key_itemTreeSubscribe",
+			        "childrenIds": ["id_itemTreeSubscribeChild"]
+			    },
+			    {
+			        "id": "id_itemTreeSubscribeChild",
+			        "source": "src_itemTreeSubscribe",
+			        "sourceKey": "src_key_itemTreeSubscribe",
+			        "filters": {
+			            "by_identity": {
+			                "resultStatus": "INDETERMINATE",
+			                "usingResultStatus": false,
+			                "equalFields": { "identity": "i_itemTreeSubscribe" }
+			            }
+			        }
+			    }]
+			""";
+		entityAdd("/item", mapper.readValue(json, Item[].class));
+		Thread.sleep(1000);
+
+		var received = new LinkedBlockingQueue<ServerSentEvent<Map<String, Map<String, Object>>>>();
+		var subscription = WebClient.create("http://localhost:" + port)
+				.get()
+				.uri("/api/v1/item/id_itemTreeSubscribeRoot/tree?subscribe")
+				.retrieve()
+				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<Map<String, Map<String, Object>>>>() {})
+				.filter(event -> Objects.nonNull(event.event()))
+				.subscribe(received::add);
+		try {
+			var snapshot = received.poll(10, TimeUnit.SECONDS);
+			assertEquals("snapshot", snapshot.event());
+			assertEquals("CLEAR", snapshot.data().get("id_itemTreeSubscribeRoot").get("status"));
+			assertEquals("CLEAR", snapshot.data().get("id_itemTreeSubscribeChild").get("status"));
+
+			var event = new Event("id_itemTreeSubscribe", "src_itemTreeSubscribe", "src_key_itemTreeSubscribe",
+					EventType.PROBLEM, BaseStatus.WARNING);
+			event.setFields(Map.of("identity", "i_itemTreeSubscribe"));
+			entityAdd("/event", event);
+
+			var statuses = new HashMap<String, Object>();
+			while (statuses.size() < 2) {
+				var change = received.poll(10, TimeUnit.SECONDS);
+				assertEquals("status", change.event());
+				change.data().forEach((id, status) -> statuses.put(id, status.get("status")));
+			}
+			assertEquals("WARNING", statuses.get("id_itemTreeSubscribeRoot"));
+			assertEquals("WARNING", statuses.get("id_itemTreeSubscribeChild"));
+		} finally {
+			subscription.dispose();
+		}
+	}
+
+	private List<Map<String, Object>> aggregate(String path) {
+		var result = restTemplate.exchange("/api/v1" + path, HttpMethod.GET, null,
+				new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		return result.getBody();
+	}
+
+	@Test
+	public void eventAggregate() {
+		final var source = "src_eventAggregate";
+		var e1 = new Event("id_eventAggregate1", source, "src_key", EventType.PROBLEM, BaseStatus.MAJOR);
+		e1.setNode("n1");
+		var e2 = new Event("id_eventAggregate2", source, "src_key", EventType.PROBLEM, BaseStatus.MAJOR);
+		e2.setNode("n1");
+		var e3 = new Event("id_eventAggregate3", source, "src_key", EventType.PROBLEM, BaseStatus.WARNING);
+		e3.setNode("n2");
+		entityAdd("/event", new Event[] { e1, e2, e3 });
+
+		var rows = aggregate("/event/aggregate?source=eq:" + source + "&groupBy=node,status");
+		assertEquals(2, rows.size());
+		assertEquals(Map.of("node", "n1", "status", "MAJOR", "count", 2), rows.get(0));
+		assertEquals(Map.of("node", "n2", "status", "WARNING", "count", 1), rows.get(1));
+
+		rows = aggregate("/event/aggregate?source=eq:" + source + "&groupBy=type&status=ge:MAJOR");
+		assertEquals(List.of(Map.of("type", "PROBLEM", "count", 2)), rows);
+
+		rows = aggregate("/event/aggregate?source=eq:" + source);
+		assertEquals(List.of(Map.of("count", 3)), rows);
+
+		for (var groupBy : List.of("fields.host", "fields", "node.name")) {
+			var result = restTemplate.getForEntity("/api/v1/event/aggregate?source=eq:" + source + "&groupBy="
+					+ groupBy, String.class);
+			assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+		}
+	}
+
+	@Test
+	public void itemAggregate() {
+		final var source = "src_itemAggregate";
+		var i1 = new Item("id_itemAggregate1", source, "src_key_itemAggregate");
+		i1.setChildrenIds(new String[] { "a", "b" });
+		var i2 = new Item("id_itemAggregate2", source, "src_key_itemAggregate");
+		i2.setChildrenIds(new String[] { "a", "b" });
+		entityAdd("/item", new Item[] { i1, i2 });
+		var rows = aggregate("/item/aggregate?source=eq:" + source + "&groupBy=status");
+		assertEquals(List.of(Map.of("status", "CLEAR", "count", 2)), rows);
+
+		rows = aggregate("/item/aggregate?source=eq:" + source + "&groupBy=childrenIds");
+		assertEquals(List.of(Map.of("childrenIds", List.of("a", "b"), "count", 2)), rows);
+		rows = aggregate("/item/aggregate?source=eq:" + source + "&GROUPBY=status");
+		assertEquals(List.of(Map.of("status", "CLEAR", "count", 2)), rows);
+
+		var result = restTemplate.getForEntity("/api/v1/item/aggregate?source=eq:" + source + "&groupBy=nosuch",
+				String.class);
+		assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+	}
+
+	@Test
+	public void eventQueryLanguage() {
+		final var source = "src_eventQueryLanguage";
+		var e1 = new Event("id_eventQueryLanguage1", source, "src_key", EventType.PROBLEM, BaseStatus.MAJOR);
+		e1.setNode("qlnode-1");
+		var e2 = new Event("id_eventQueryLanguage2", source, "src_key", EventType.PROBLEM, BaseStatus.WARNING);
+		e2.setNode("qlnode-2");
+		var e3 = new Event("id_eventQueryLanguage3", source, "src_key", EventType.INFORMATION, BaseStatus.CRITICAL);
+		e3.setNode("other");
+		entityAdd("/event", new Event[] { e1, e2, e3 });
+
+		var q = "source=" + source + " and ";
+		assertEquals(2, restTemplate.getForObject("/api/v1/event?q={q}", Event[].class,
+				q + "(node=qlnode-1 or node=other)").length);
+		assertEquals(2, restTemplate.getForObject("/api/v1/event?q={q}", Event[].class,
+				q + "node^=qlnode").length);
+		assertEquals(2, restTemplate.getForObject("/api/v1/event?q={q}", Event[].class,
+				q + "status>=MAJOR").length);
+		assertEquals(1, restTemplate.getForObject("/api/v1/event?q={q}", Event[].class,
+				q + "status>MAJOR").length);
+		assertEquals(2, restTemplate.getForObject("/api/v1/event?q={q}", Event[].class,
+				q + "status between WARNING and MAJOR").length);
+		assertEquals(1, restTemplate.getForObject("/api/v1/event?q={q}&type=eq:information", Event[].class,
+				q + "not node in (qlnode-1, qlnode-2)").length);
+		assertEquals(2, restTemplate.getForObject("/api/v1/event?source=eq:{source}&status=in:WARNING,CRITICAL",
+				Event[].class, source).length);
+		assertEquals(2, restTemplate.getForObject("/api/v1/event?Q={q}", Event[].class,
+				q + "node^=qlnode").length);
+		var bad = restTemplate.getForEntity("/api/v1/event?q={q}", String.class, "status >=");
+		assertEquals(HttpStatus.BAD_REQUEST, bad.getStatusCode());
+		bad = restTemplate.getForEntity("/api/v1/event?source=eq:{source}&limit=ten", String.class, source);
+		assertEquals(HttpStatus.BAD_REQUEST, bad.getStatusCode());
+		bad = restTemplate.getForEntity("/api/v1/event?source=eq:{source}&sort=nosuch", String.class, source);
+		assertEquals(HttpStatus.BAD_REQUEST, bad.getStatusCode());
+		bad = restTemplate.getForEntity("/api/v1/event?source={source}", String.class, source);
+		assertEquals(HttpStatus.BAD_REQUEST, bad.getStatusCode());
+		assertTrue(bad.getBody().contains("source"));
+	}
+
+	/*
+	 * Status and type are stored as ordinals, the text operators
+	 * match the constant names.
+	 */
+	@Test
+	public void eventEnumText() {
+		final var source = "src_eventEnumText";
+		entityAdd("/event", new Event[] {
+				new Event("id_eventEnumText1", source, "src_key", EventType.PROBLEM, BaseStatus.MAJOR),
+				new Event("id_eventEnumText2", source, "src_key", EventType.PROBLEM, BaseStatus.WARNING),
+				new Event("id_eventEnumText3", source, "src_key", EventType.INFORMATION, BaseStatus.CRITICAL) });
+
+		var url = "/api/v1/event?source=eq:" + source + "&";
+		assertEquals(1, restTemplate.getForObject(url + "status=co:MAJ", Event[].class).length);
+		assertEquals(1, restTemplate.getForObject(url + "status=co:maj", Event[].class).length);
+		assertEquals(2, restTemplate.getForObject(url + "status=nc:MAJ", Event[].class).length);
+		assertEquals(1, restTemplate.getForObject(url + "status=pr:MA", Event[].class).length);
+		assertEquals(0, restTemplate.getForObject(url + "status=co:nosuch", Event[].class).length);
+		assertEquals(2, restTemplate.getForObject(url + "type=co:PROB", Event[].class).length);
+		assertEquals(1, restTemplate.getForObject("/api/v1/event?q={q}", Event[].class,
+				"source=" + source + " and status~MAJ").length);
+		assertEquals(2, restTemplate.getForObject("/api/v1/event?q={q}", Event[].class,
+				"source=" + source + " and type!~INFO").length);
+	}
+
+	private Event bulkEvent(String source, int i, BaseStatus status) {
+		var event = new Event("id_" + source + i, source, "src_key", EventType.PROBLEM, status);
+		event.setNode("n" + i);
+		return event;
+	}
+
+	private Map<String, BaseStatus> statusByNode(String source) {
+		var out = new HashMap<String, BaseStatus>();
+		eventGetBySourceEqual(source).forEach(event -> out.put(event.getNode(), event.getStatus()));
+		return out;
+	}
+
+	/*
+	 * Bulk posts are split by partition, the result must not depend on
+	 * the split. A repeated id in one post keeps the last entity.
+	 */
+	@Test
+	public void eventBulkMatchesSingle() {
+		final var bulk = "src_eventBulk";
+		final var single = "src_eventBulkSingle";
+		var events = new ArrayList<Event>();
+		for (int i = 0; i < 100; i++) {
+			events.add(bulkEvent(bulk, i, BaseStatus.fromInteger(i % BaseStatus.length)));
+		}
+		events.add(bulkEvent(bulk, 0, BaseStatus.CRITICAL));
+		entityAdd("/event", events.toArray(Event[]::new));
+		for (int i = 0; i < 100; i++) {
+			entityAdd("/event", bulkEvent(single, i, BaseStatus.fromInteger(i % BaseStatus.length)));
+		}
+		entityAdd("/event", bulkEvent(single, 0, BaseStatus.CRITICAL));
+
+		var expected = statusByNode(single);
+		assertEquals(100, expected.size());
+		assertEquals(BaseStatus.CRITICAL, expected.get("n0"));
+		assertEquals(expected, statusByNode(bulk));
+	}
+
+	private Event[] pagingEvents(String source) {
+		var events = new Event[5];
+		for (int i = 0; i < events.length; i++) {
+			events[i] = new Event("id_" + source + i, source, "src_key", EventType.PROBLEM,
+					BaseStatus.fromInteger(i + 1));
+			events[i].setNode("n" + (4 - i));
+		}
+		return events;
+	}
+
+	@Test
+	public void eventPaging() {
+		final var source = "src_eventPaging";
+		entityAdd("/event", pagingEvents(source));
+
+		var result = restTemplate.exchange("/api/v1/event?source=eq:" + source + "&sort=node&limit=2&offset=1",
+				HttpMethod.GET, null, new ParameterizedTypeReference<List<Event>>() {});
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		assertEquals("5", result.getHeaders().getFirst("X-Total-Count"));
+		assertEquals(List.of("n1", "n2"), result.getBody().stream().map(Event::getNode).toList());
+
+		result = restTemplate.exchange("/api/v1/event?source=eq:" + source + "&sort=-status&limit=3",
+				HttpMethod.GET, null, new ParameterizedTypeReference<List<Event>>() {});
+		assertEquals("5", result.getHeaders().getFirst("X-Total-Count"));
+		assertEquals(List.of(BaseStatus.CRITICAL, BaseStatus.MAJOR, BaseStatus.WARNING),
+				result.getBody().stream().map(Event::getStatus).toList());
+
+		result = restTemplate.exchange("/api/v1/event?source=eq:" + source + "&sort=node&offset=4",
+				HttpMethod.GET, null, new ParameterizedTypeReference<List<Event>>() {});
+		assertEquals(List.of("n4"), result.getBody().stream().map(Event::getNode).toList());
+
+		var bad = restTemplate.getForEntity("/api/v1/event?source=eq:" + source + "&limit=0", String.class);
+		assertEquals(HttpStatus.BAD_REQUEST, bad.getStatusCode());
+	}
+
+	@Test
+	public void eventProjection() {
+		final var source = "src_eventProjection";
+		entityAdd("/event", pagingEvents(source));
+
+		var result = restTemplate.exchange("/api/v1/event?source=eq:" + source + "&property=node",
+				HttpMethod.GET, null, new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+		assertEquals(HttpStatus.OK, result.getStatusCode());
+		assertEquals(5, result.getBody().size());
+		result.getBody().forEach(event -> assertEquals(Set.of("id", "node"), event.keySet()));
+
+		result = restTemplate.exchange("/api/v1/event?source=eq:" + source
+				+ "&property=node&property=status&sort=-node&limit=2",
+				HttpMethod.GET, null, new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+		assertEquals(List.of(Map.of("id", "id_" + source + "0", "node", "n4", "status", "INDETERMINATE"),
+				Map.of("id", "id_" + source + "1", "node", "n3", "status", "INFORMATION")), result.getBody());
+	}
+
+	@Test
+	public void eventStream() throws IOException, InterruptedException {
+		final var source = "src_eventStream";
+		var filter = new ItemFilter();
+		filter.setEqualFields(Map.of("stream", source));
+		var item = new Item("id_eventStreamItem", source, "src_key");
+		item.setFilters(Map.of("by_stream", filter));
+		entityAdd("/item", item);
+		var events = pagingEvents(source);
+		for (var event : events) {
+			event.setFields(Map.of("stream", source));
+		}
+		entityAdd("/event", events);
+
+		var json = restTemplate.getForEntity("/api/v1/event?source=eq:" + source + "&stream=json", String.class);
+		assertEquals(HttpStatus.OK, json.getStatusCode());
+		assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(json.getHeaders().getContentType()));
+		assertEquals(5, mapper.readValue(json.getBody(), List.class).size());
+
+		var ndjson = restTemplate.getForEntity("/api/v1/event?source=eq:" + source
+				+ "&stream=ndjson&sort=node&limit=2&offset=1&property=node", String.class);
+		assertEquals(HttpStatus.OK, ndjson.getStatusCode());
+		assertEquals("application/x-ndjson", ndjson.getHeaders().getContentType().toString());
+		var lines = ndjson.getBody().lines().toList();
+		assertEquals(2, lines.size());
+		assertEquals(Map.of("id", "id_" + source + "3", "node", "n1"), mapper.readValue(lines.get(0), Map.class));
+		assertEquals(Map.of("id", "id_" + source + "2", "node", "n2"), mapper.readValue(lines.get(1), Map.class));
+
+		var url = "/api/v1/item/" + item.getId() + "/events?stream=ndjson";
+		var body = "";
+		for (int i = 0; i < 100 && body.lines().count() < 5; i++) {
+			Thread.sleep(100);
+			body = Objects.requireNonNullElse(restTemplate.getForObject(url, String.class), "");
+		}
+		assertEquals(5, body.lines().count());
+		var empty = restTemplate.getForEntity("/api/v1/event?source=eq:src_eventStreamNone&stream=json",
+				String.class);
+		assertEquals("[]", empty.getBody());
+	}
+
+	/*
+	 * The events of a subtree are read by chunks of
+	 * ItemService.EVENTS_CHUNK_SIZE, all chunks must be returned.
+	 */
+	@Test
+	public void itemEventsChunks() throws InterruptedException {
+		final var source = "src_itemEventsChunks";
+		var children = new ArrayList<Item>();
+		var events = new ArrayList<Event>();
+		for (var side : List.of("A", "B")) {
+			var filter = new ItemFilter();
+			filter.setEqualFields(Map.of("chunks", source + side));
+			var child = new Item("id_itemEventsChunks" + side, source, "src_key");
+			child.setFilters(Map.of("by_chunks", filter));
+			children.add(child);
+			for (int i = 0; i < ItemService.EVENTS_CHUNK_SIZE + 100; i++) {
+				var event = new Event("id_itemEventsChunks" + side + i, source, "src_key", EventType.PROBLEM,
+						BaseStatus.WARNING);
+				event.setFields(Map.of("chunks", source + side));
+				events.add(event);
+			}
+		}
+		var root = new Item("id_itemEventsChunksRoot", source, "src_key");
+		root.setChildrenIds(children.stream().map(Item::getId).toArray(String[]::new));
+		children.add(root);
+		entityAdd("/item", children.toArray(Item[]::new));
+		entityAdd("/event", events.toArray(Event[]::new));
+
+		var url = "/api/v1/item/" + root.getId() + "/events?property=id";
+		var found = new Map<?, ?>[0];
+		for (int i = 0; i < 100 && found.length < events.size(); i++) {
+			Thread.sleep(100);
+			found = restTemplate.getForObject(url, Map[].class);
+		}
+		assertEquals(events.stream().map(Event::getId).collect(Collectors.toSet()),
+				Arrays.stream(found).map(event -> event.get("id")).collect(Collectors.toSet()));
+		assertEquals(events.size(), found.length);
+	}
+
 }
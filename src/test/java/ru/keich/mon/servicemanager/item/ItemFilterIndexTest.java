@@ -0,0 +1,157 @@
+package ru.keich.mon.servicemanager.item;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.hazelcast.config.ClasspathYamlConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.entity.EntityService.UpsertMode;
+import ru.keich.mon.servicemanager.event.Event;
+import ru.keich.mon.servicemanager.event.Event.EventType;
+import ru.keich.mon.servicemanager.event.EventService;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class ItemFilterIndexTest {
+
+	private static ItemFilter filter(BaseStatus resultStatus, Map<String, String> equalFields) {
+		var filter = new ItemFilter();
+		filter.setResultStatus(resultStatus);
+		filter.setEqualFields(equalFields);
+		return filter;
+	}
+
+	private static Map<String, ItemFilter> filters(ItemFilter... filters) {
+		var out = new LinkedHashMap<String, ItemFilter>();
+		for (int i = 0; i < filters.length; i++) {
+			out.put("filter" + i, filters[i]);
+		}
+		return out;
+	}
+
+	@Test
+	public void allFieldsMustMatch() {
+		var index = new ItemFilterIndex();
+		var filter = filter(BaseStatus.MAJOR, Map.of("host", "h1", "app", "a1"));
+		index.put("item1", filters(filter));
+
+		assertEquals(Map.of("item1", filter), index.match(Map.of("host", "h1", "app", "a1", "other", "o1")));
+		assertTrue(index.match(Map.of("host", "h1")).isEmpty());
+		assertTrue(index.match(Map.of("host", "h1", "app", "a2")).isEmpty());
+	}
+
+	@Test
+	public void firstFilterWins() {
+		var index = new ItemFilterIndex();
+		var first = filter(BaseStatus.CRITICAL, Map.of("host", "h1", "app", "a1"));
+		var second = filter(BaseStatus.MAJOR, Map.of("host", "h1"));
+		index.put("item1", filters(first, second));
+		index.put("item2", filters(second));
+
+		var fields = Map.of("host", "h1", "app", "a1");
+		assertEquals(Map.of("item1", first, "item2", second), index.match(fields));
+		assertEquals(Map.of("item1", second, "item2", second), index.match(Map.of("host", "h1")));
+	}
+
+	@Test
+	public void changedAndRemovedFilters() {
+		var index = new ItemFilterIndex();
+		index.put("item1", filters(filter(BaseStatus.MAJOR, Map.of("host", "h1"))));
+		var changed = filter(BaseStatus.MAJOR, Map.of("host", "h2"));
+		index.put("item1", filters(changed));
+
+		assertTrue(index.match(Map.of("host", "h1")).isEmpty());
+		assertEquals(Map.of("item1", changed), index.match(Map.of("host", "h2")));
+
+		index.put("item1", filters(filter(BaseStatus.MAJOR, Map.of())));
+		assertTrue(index.match(Map.of("host", "h2")).isEmpty());
+
+		index.put("item1", filters(changed));
+		index.remove("item1");
+		assertTrue(index.match(Map.of("host", "h2")).isEmpty());
+	}
+
+	private static HazelcastInstance start() {
+		var config = new ClasspathYamlConfig("hazelcast.yaml");
+		config.setClusterName("itemFilterIndexTest");
+		config.getNetworkConfig().setPort(5911).setPortAutoIncrement(true);
+		config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true)
+				.addMember("127.0.0.1:5911").addMember("127.0.0.1:5912");
+		return Hazelcast.newHazelcastInstance(config);
+	}
+
+	private static ItemService itemService(HazelcastInstance hazelcastInstance) {
+		var properties = new ItemProperties();
+		properties.setQueueThreadNumber(1);
+		var eventService = new EventService(hazelcastInstance, UpsertMode.PROCESSOR, true, 60000L, 60L);
+		return new ItemService(hazelcastInstance, eventService, properties, false, UpsertMode.PROCESSOR, true,
+				60000L, 60L);
+	}
+
+	private static boolean await(BooleanSupplier condition) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			if (condition.getAsBoolean()) {
+				return true;
+			}
+			Thread.sleep(100);
+		}
+		return false;
+	}
+
+	/*
+	 * A joining member builds its index from the itemFilters map
+	 * and follows the changes made on the other members.
+	 */
+	@Test
+	public void joiningMember() throws InterruptedException {
+		var first = start();
+		HazelcastInstance second = null;
+		try {
+			var firstService = itemService(first);
+			var item = new Item("id_itemFilterIndex", "src_itemFilterIndex", "src_key");
+			item.setFilters(filters(filter(BaseStatus.MAJOR, Map.of("host", "h1"))));
+			firstService.addOrUpdate(item);
+
+			second = start();
+			assertEquals(2, second.getCluster().getMembers().size());
+			var secondService = itemService(second);
+			var event = new Event("id_itemFilterIndexEvent", "src_itemFilterIndex", "src_key", EventType.PROBLEM,
+					BaseStatus.MAJOR);
+			event.setFields(Map.of("host", "h1"));
+			assertTrue(await(() -> secondService.findFiltersByEqualFields(event).size() == 1));
+			assertEquals(item.getId(), secondService.findFiltersByEqualFields(event).get(0).getItemId());
+
+			firstService.deleteById(item.getId());
+			assertTrue(await(() -> secondService.findFiltersByEqualFields(event).isEmpty()));
+		} finally {
+			if (second != null) {
+				second.shutdown();
+			}
+			first.shutdown();
+		}
+	}
+
+}
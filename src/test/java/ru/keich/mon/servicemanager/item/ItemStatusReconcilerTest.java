@@ -0,0 +1,137 @@
+package ru.keich.mon.servicemanager.item;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.event.Event;
+import ru.keich.mon.servicemanager.event.Event.EventType;
+import ru.keich.mon.servicemanager.event.EventService;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@SpringBootTest
+public class ItemStatusReconcilerTest {
+
+	@Autowired
+	private HazelcastInstance hazelcastInstance;
+
+	@Autowired
+	private ItemService itemService;
+
+	@Autowired
+	private EventService eventService;
+
+	@Autowired
+	private ItemStatusReconciler reconciler;
+
+	private Item waitFor(String itemId, Predicate<Item> condition) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			var item = itemService.findById(itemId);
+			if (item != null && condition.test(item)) {
+				return item;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("Item " + itemId + " is not updated");
+	}
+
+	private Item parentOf(String parentId, String childId) {
+		var parent = new Item(parentId, "src_reconciler", "src_key_reconciler");
+		parent.setChildrenIds(new String[] { childId });
+		return parent;
+	}
+
+	@Test
+	public void lostChildStatus() throws InterruptedException {
+		var child = new Item("id_reconcilerChild", "src_reconciler", "src_key_reconciler");
+		itemService.addOrUpdate(child);
+		itemService.addOrUpdate(parentOf("id_reconcilerParent", child.getId()));
+		waitFor("id_reconcilerParent", i -> i.getChildrenIds().length == 1);
+
+		IMap<String, Item> items = hazelcastInstance.getMap(ItemService.NAME_ITEMS_MAP);
+		var stale = items.get("id_reconcilerParent");
+		stale.getChildStatus().put(child.getId(), BaseStatus.MAJOR);
+		stale.getChildStatusVersion().put(child.getId(), -1L);
+		stale.setStatus(BaseStatus.MAJOR);
+		items.set(stale.getId(), stale);
+
+		var result = reconciler.reconcile();
+		assertTrue(result.getCorrected() > 0);
+		var parent = itemService.findById(stale.getId());
+		assertEquals(itemService.findById(child.getId()).getStatusVersion(),
+				parent.getChildStatusVersion().get(child.getId()));
+		assertEquals(BaseStatus.CLEAR, parent.getStatus());
+	}
+
+	@Test
+	public void lostParentEdge() throws InterruptedException {
+		var child = new Item("id_reconcilerEdgeChild", "src_reconciler", "src_key_reconciler");
+		itemService.addOrUpdate(child);
+		itemService.addOrUpdate(parentOf("id_reconcilerEdgeParent", child.getId()));
+		waitFor("id_reconcilerEdgeParent", i -> i.getChildrenIds().length == 1);
+		assertEquals(List.of("id_reconcilerEdgeParent"), itemService.findParentIdsById(child.getId()));
+
+		IMap<String, String[]> parents = hazelcastInstance.getMap(ItemService.NAME_ITEM_PARENTS_MAP);
+		parents.delete(child.getId());
+		parents.set("id_reconcilerEdgeOrphan", new String[] { "id_reconcilerEdgeParent" });
+
+		var result = reconciler.reconcile();
+		assertTrue(result.getParents() >= 2);
+		assertEquals(List.of("id_reconcilerEdgeParent"), itemService.findParentIdsById(child.getId()));
+		assertEquals(List.of(), itemService.findParentIdsById("id_reconcilerEdgeOrphan"));
+	}
+
+	@Test
+	public void lostEvent() throws InterruptedException {
+		var filter = new ItemFilter();
+		filter.setEqualFields(Map.of("reconciler", "lostEvent"));
+		var child = new Item("id_reconcilerEventChild", "src_reconciler", "src_key_reconciler");
+		child.setFilters(Map.of("by_reconciler", filter));
+		itemService.addOrUpdate(child);
+		itemService.addOrUpdate(parentOf("id_reconcilerEventParent", child.getId()));
+		waitFor("id_reconcilerEventParent", i -> i.getChildrenIds().length == 1);
+
+		var event = new Event("id_reconcilerEvent", "src_reconciler", "src_key_reconciler", EventType.PROBLEM,
+				BaseStatus.CRITICAL);
+		event.setFields(Map.of("reconciler", "lostEvent"));
+		eventService.addOrUpdate(List.of(event));
+		waitFor("id_reconcilerEventParent", i -> i.getStatus() == BaseStatus.CRITICAL);
+
+		IMap<String, Item> items = hazelcastInstance.getMap(ItemService.NAME_ITEMS_MAP);
+		var stale = items.get(child.getId());
+		stale.getEventsStatus().remove(event.getId());
+		items.set(child.getId(), stale);
+
+		var result = reconciler.reconcile();
+		assertTrue(result.getCorrected() > 0);
+		waitFor(child.getId(), i -> i.getEventsStatus().get(event.getId()) == BaseStatus.CRITICAL);
+		waitFor("id_reconcilerEventParent", i -> i.getStatus() == BaseStatus.CRITICAL);
+	}
+
+}
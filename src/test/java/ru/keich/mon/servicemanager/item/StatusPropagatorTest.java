@@ -0,0 +1,179 @@
+package ru.keich.mon.servicemanager.item;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.event.Event;
+import ru.keich.mon.servicemanager.event.Event.EventType;
+import ru.keich.mon.servicemanager.event.EventService;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+@SpringBootTest
+public class StatusPropagatorTest {
+
+	@Autowired
+	private ItemService itemService;
+
+	@Autowired
+	private EventService eventService;
+
+	@Test
+	public void levels() {
+		var levels = ItemGraph.levels(Map.of(
+				"root", new String[] { "left", "right" },
+				"left", new String[] { "leaf" },
+				"right", new String[] { "leaf", "unknown" },
+				"leaf", new String[0],
+				"cycleA", new String[] { "cycleB" },
+				"cycleB", new String[] { "cycleA", "leaf" }));
+		assertEquals(4, levels.size());
+		assertEquals(List.of("leaf"), levels.get(0).getIds());
+		assertEquals(Set.of("left", "right"), Set.copyOf(levels.get(1).getIds()));
+		assertEquals(List.of("root"), levels.get(2).getIds());
+		assertFalse(levels.get(2).isCycle());
+		assertEquals(Set.of("cycleA", "cycleB"), Set.copyOf(levels.get(3).getIds()));
+		assertTrue(levels.get(3).isCycle());
+	}
+
+	/*
+	 * Seven levels with a diamond at every level, the shared
+	 * ancestors are reached by two paths.
+	 */
+	@Test
+	public void deepDiamond() throws InterruptedException {
+		var filter = new ItemFilter();
+		filter.setEqualFields(Map.of("propagator", "deepDiamond"));
+		var leaf = new Item("id_propagatorLeaf", "src_propagator", "src_key_propagator");
+		leaf.setFilters(Map.of("by_propagator", filter));
+		var items = new ArrayList<Item>(List.of(leaf));
+		var below = List.of(leaf.getId());
+		for (int depth = 1; depth < 7; depth++) {
+			var level = new ArrayList<String>();
+			for (var side : List.of("A", "B")) {
+				var item = new Item("id_propagator" + depth + side, "src_propagator", "src_key_propagator");
+				item.setChildrenIds(below.toArray(String[]::new));
+				items.add(item);
+				level.add(item.getId());
+			}
+			below = level;
+		}
+		var root = new Item("id_propagatorRoot", "src_propagator", "src_key_propagator");
+		root.setChildrenIds(below.toArray(String[]::new));
+		items.add(root);
+		itemService.addOrUpdate(items);
+
+		var event = new Event("id_propagatorEvent", "src_propagator", "src_key_propagator", EventType.PROBLEM,
+				BaseStatus.CRITICAL);
+		event.setFields(Map.of("propagator", "deepDiamond"));
+		eventService.addOrUpdate(List.of(event));
+		for (int i = 0; i < 100 && itemService.findById(root.getId()).getStatus() != BaseStatus.CRITICAL; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(BaseStatus.CRITICAL, itemService.findById(root.getId()).getStatus());
+		assertEquals(BaseStatus.CRITICAL, itemService.findById("id_propagator3A").getStatus());
+
+		eventService.deleteById(event.getId());
+		for (int i = 0; i < 100 && itemService.findById(root.getId()).getStatus() != BaseStatus.CLEAR; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(BaseStatus.CLEAR, itemService.findById(root.getId()).getStatus());
+	}
+
+	private void waitForStatus(String itemId, BaseStatus status) throws InterruptedException {
+		for (int i = 0; i < 100 && itemService.findById(itemId).getStatus() != status; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(status, itemService.findById(itemId).getStatus());
+	}
+
+	/*
+	 * The removal message of the child must not outrank the
+	 * statuses of the child created again with the same id.
+	 */
+	@Test
+	public void recreatedChild() throws InterruptedException {
+		var filter = new ItemFilter();
+		filter.setEqualFields(Map.of("propagator", "recreatedChild"));
+		var child = new Item("id_propagatorRecreatedChild", "src_propagator", "src_key_propagator");
+		child.setFilters(Map.of("by_propagator", filter));
+		var parent = new Item("id_propagatorRecreatedParent", "src_propagator", "src_key_propagator");
+		parent.setChildrenIds(new String[] { child.getId() });
+		itemService.addOrUpdate(List.of(child, parent));
+		var event = new Event("id_propagatorRecreated1", "src_propagator", "src_key_propagator", EventType.PROBLEM,
+				BaseStatus.MAJOR);
+		event.setFields(Map.of("propagator", "recreatedChild"));
+		eventService.addOrUpdate(List.of(event));
+		waitForStatus(parent.getId(), BaseStatus.MAJOR);
+		var removedVersion = itemService.findById(child.getId()).getStatusVersion() + 1;
+
+		itemService.deleteById(child.getId());
+		eventService.deleteById(event.getId());
+		itemService.addOrUpdate(child);
+		assertTrue(itemService.findById(child.getId()).getStatusVersion() > removedVersion);
+		var again = new Event("id_propagatorRecreated2", "src_propagator", "src_key_propagator", EventType.PROBLEM,
+				BaseStatus.CRITICAL);
+		again.setFields(Map.of("propagator", "recreatedChild"));
+		eventService.addOrUpdate(List.of(again));
+		waitForStatus(parent.getId(), BaseStatus.CRITICAL);
+	}
+
+	/*
+	 * A child message with a version the parent already knows,
+	 * or an older one, must not change the parent.
+	 */
+	@Test
+	public void olderChildStatus() throws InterruptedException {
+		var filter = new ItemFilter();
+		filter.setEqualFields(Map.of("propagator", "olderChildStatus"));
+		var child = new Item("id_propagatorOlderChild", "src_propagator", "src_key_propagator");
+		child.setFilters(Map.of("by_propagator", filter));
+		var parent = new Item("id_propagatorOlderParent", "src_propagator", "src_key_propagator");
+		parent.setChildrenIds(new String[] { child.getId() });
+		itemService.addOrUpdate(List.of(child, parent));
+		var event = new Event("id_propagatorOlder", "src_propagator", "src_key_propagator", EventType.PROBLEM,
+				BaseStatus.MAJOR);
+		event.setFields(Map.of("propagator", "olderChildStatus"));
+		eventService.addOrUpdate(List.of(event));
+		waitForStatus(parent.getId(), BaseStatus.MAJOR);
+		var version = itemService.findById(parent.getId()).getChildStatusVersion().get(child.getId());
+
+		for (var old : List.of(version, version - 1)) {
+			var put = new ItemService.ChildStatusPut(Map.of(child.getId(),
+					new ItemService.ItemStatus(BaseStatus.CRITICAL, old)));
+			assertTrue(itemService.applyStatusProcessors(Map.of(parent.getId(), put), false).isEmpty());
+			assertEquals(BaseStatus.MAJOR, itemService.findById(parent.getId()).getStatus());
+		}
+
+		var newer = new ItemService.ChildStatusPut(Map.of(child.getId(),
+				new ItemService.ItemStatus(BaseStatus.CRITICAL, version + 1)));
+		itemService.applyStatusProcessors(Map.of(parent.getId(), newer), false);
+		assertEquals(BaseStatus.CRITICAL, itemService.findById(parent.getId()).getStatus());
+	}
+
+}
@@ -0,0 +1,82 @@
+package ru.keich.mon.servicemanager.mapstatus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class MapStatusTest {
+
+	private static void assertCounts(MapStatus mapStatus, int clear, int warning, int major, int critical) {
+		assertEquals(clear, mapStatus.count(BaseStatus.CLEAR));
+		assertEquals(warning, mapStatus.count(BaseStatus.WARNING));
+		assertEquals(major, mapStatus.count(BaseStatus.MAJOR));
+		assertEquals(critical, mapStatus.count(BaseStatus.CRITICAL));
+	}
+
+	@Test
+	public void putAndRemove() {
+		var mapStatus = new MapStatus();
+		assertEquals(Optional.empty(), mapStatus.put("a", BaseStatus.WARNING));
+		mapStatus.put("b", BaseStatus.CRITICAL);
+		assertEquals(BaseStatus.CRITICAL, mapStatus.getMaxStatus());
+		assertEquals(Optional.of(BaseStatus.CRITICAL), mapStatus.put("b", BaseStatus.MAJOR));
+		assertEquals(BaseStatus.MAJOR, mapStatus.getMaxStatus());
+		assertCounts(mapStatus, 0, 1, 1, 0);
+		assertEquals(2, mapStatus.countAtLeast(BaseStatus.WARNING));
+		assertEquals(Optional.of(BaseStatus.MAJOR), mapStatus.minAtLeast(BaseStatus.MAJOR));
+
+		assertEquals(BaseStatus.MAJOR, mapStatus.remove("b"));
+		assertEquals(BaseStatus.WARNING, mapStatus.getMaxStatus());
+		assertEquals(null, mapStatus.remove("b"));
+		assertCounts(mapStatus, 0, 1, 0, 0);
+		mapStatus.remove("a");
+		assertEquals(BaseStatus.CLEAR, mapStatus.getMaxStatus());
+		assertCounts(mapStatus, 0, 0, 0, 0);
+	}
+
+	/*
+	 * Data written before the counters existed has none, they are
+	 * counted from the data before the first change.
+	 */
+	@Test
+	public void nullCounters() {
+		var data = new HashMap<String, BaseStatus>();
+		data.put("a", BaseStatus.WARNING);
+		data.put("b", BaseStatus.MAJOR);
+
+		var put = new MapStatus(new HashMap<String, BaseStatus>(data), null, BaseStatus.MAJOR);
+		put.put("c", BaseStatus.MAJOR);
+		put.put("a", BaseStatus.MAJOR);
+		assertCounts(put, 0, 0, 3, 0);
+
+		var remove = new MapStatus(new HashMap<String, BaseStatus>(data), null, BaseStatus.MAJOR);
+		remove.remove("b");
+		assertCounts(remove, 0, 1, 0, 0);
+		assertEquals(BaseStatus.WARNING, remove.getMaxStatus());
+		remove.remove("a");
+		assertCounts(remove, 0, 0, 0, 0);
+		assertEquals(BaseStatus.CLEAR, remove.getMaxStatus());
+	}
+
+}
@@ -0,0 +1,102 @@
+package ru.keich.mon.servicemanager.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.hazelcast.config.IndexType;
+import com.hazelcast.query.Predicates;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class QueryPlannerTest {
+
+	private final QueryPlanner<String, Object> planner = new QueryPlanner<String, Object>(
+			Map.of("source", IndexType.HASH, "status", IndexType.SORTED),
+			filter -> Predicates.alwaysTrue());
+
+	private Filter term(Expression expression) {
+		return assertInstanceOf(Expression.Term.class, expression).getFilter();
+	}
+
+	@Test
+	public void parse() {
+		var expression = QueryParser.parse(
+				"status>=WARNING and (node in (n1, 'n 2') or not source^=snmp) AND summary ~ 'it''s down'");
+		var and = assertInstanceOf(Expression.And.class, expression);
+		assertEquals(3, and.getOperands().size());
+		var status = term(and.getOperands().get(0));
+		assertEquals("status", status.getName());
+		assertEquals(Operator.GE, status.getOperator());
+		assertEquals("WARNING", status.getValue());
+		var or = assertInstanceOf(Expression.Or.class, and.getOperands().get(1));
+		var node = term(or.getOperands().get(0));
+		assertEquals(Operator.IN, node.getOperator());
+		assertEquals(List.of("n1", "n 2"), node.getValues());
+		var not = assertInstanceOf(Expression.Not.class, or.getOperands().get(1));
+		assertEquals(Operator.PR, term(not.getOperand()).getOperator());
+		assertEquals("it's down", term(and.getOperands().get(2)).getValue());
+
+		var between = term(QueryParser.parse("createdOn between 2024-01-01T00:00 and 2024-02-01T00:00"));
+		assertEquals(Operator.BW, between.getOperator());
+		assertEquals(List.of("2024-01-01T00:00", "2024-02-01T00:00"), between.getValues());
+		var notIn = assertInstanceOf(Expression.Not.class, QueryParser.parse("node not in (a)"));
+		assertEquals(Operator.IN, term(notIn.getOperand()).getOperator());
+	}
+
+	@Test
+	public void parseErrors() {
+		assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("status"));
+		assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("status = "));
+		assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("(status = a"));
+		assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("status = 'a"));
+		assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("a = b c = d"));
+		assertThrows(IllegalArgumentException.class, () -> QueryParser.parse("a between b"));
+	}
+
+	@Test
+	public void orOfEqualsBecomesIn() {
+		var expression = planner.normalize(QueryParser.parse("source=a or (source=b or source in (c, a)) or node=x"));
+		var or = assertInstanceOf(Expression.Or.class, expression);
+		assertEquals(2, or.getOperands().size());
+		var source = term(or.getOperands().get(0));
+		assertEquals(Operator.IN, source.getOperator());
+		assertEquals(List.of("a", "b", "c"), source.getValues());
+		assertEquals(Operator.EQ, term(or.getOperands().get(1)).getOperator());
+		assertEquals(QueryPlanner.COST_SCAN, planner.cost(or));
+		assertEquals(QueryPlanner.COST_HASH, planner.cost(planner.normalize(QueryParser.parse("source=a or source=b"))));
+	}
+
+	@Test
+	public void costs() {
+		assertEquals(QueryPlanner.COST_HASH, planner.cost(QueryParser.parse("source=a")));
+		assertEquals(QueryPlanner.COST_SCAN, planner.cost(QueryParser.parse("source^=a")));
+		assertEquals(QueryPlanner.COST_SORTED, planner.cost(QueryParser.parse("status between CLEAR and MAJOR")));
+		assertEquals(QueryPlanner.COST_SCAN, planner.cost(QueryParser.parse("status~MAJOR")));
+		assertEquals(QueryPlanner.COST_SORTED, planner.cost(QueryParser.parse("node=a and status>MAJOR")));
+		assertEquals(QueryPlanner.COST_SCAN, planner.cost(QueryParser.parse("not source=a")));
+		var and = assertInstanceOf(Expression.And.class,
+				planner.normalize(QueryParser.parse("node=a and (status>MAJOR and source=b)")));
+		assertEquals(3, and.getOperands().size());
+	}
+
+}
@@ -0,0 +1,282 @@
+package ru.keich.mon.servicemanager.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hazelcast.config.ClasspathYamlConfig;
+import com.hazelcast.config.MapStoreConfig;
+import com.hazelcast.config.MapStoreConfig.InitialLoadMode;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+import ru.keich.mon.servicemanager.BaseStatus;
+import ru.keich.mon.servicemanager.entity.EntityService.UpsertMode;
+import ru.keich.mon.servicemanager.event.Event;
+import ru.keich.mon.servicemanager.event.Event.EventType;
+import ru.keich.mon.servicemanager.event.EventService;
+import ru.keich.mon.servicemanager.item.Item;
+import ru.keich.mon.servicemanager.item.ItemFilter;
+import ru.keich.mon.servicemanager.item.ItemProperties;
+import ru.keich.mon.servicemanager.item.ItemService;
+
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+public class FileMapStoreTest {
+
+	@TempDir
+	Path directory;
+
+	private HazelcastInstance start(Path directory, long compactBytes, long tombstoneMillis, boolean cluster,
+			List<String> mapNames) {
+		var config = new ClasspathYamlConfig("hazelcast.yaml");
+		config.setClusterName("fileMapStoreTest");
+		if (cluster) {
+			config.getNetworkConfig().setPort(5901).setPortAutoIncrement(true);
+			config.getNetworkConfig().getJoin().getTcpIpConfig().setEnabled(true).addMember("127.0.0.1:5901").addMember("127.0.0.1:5902");
+		}
+		mapNames.forEach(mapName -> config.getMapConfig(mapName)
+				.setMapStoreConfig(new MapStoreConfig()
+						.setEnabled(true)
+						.setImplementation(new FileMapStore<Object, Object>(directory.resolve(mapName), compactBytes,
+								tombstoneMillis))
+						.setInitialLoadMode(InitialLoadMode.EAGER)
+						.setWriteDelaySeconds(1)
+						.setWriteCoalescing(true)));
+		return Hazelcast.newHazelcastInstance(config);
+	}
+
+	private HazelcastInstance start(long compactBytes) {
+		return start(directory, compactBytes, Long.MAX_VALUE, false, List.of(ItemService.NAME_ITEMS_MAP));
+	}
+
+	private static Item item(String id, String name) {
+		var item = new Item(id, "src_fileMapStore", "src_key_fileMapStore");
+		item.setName(name);
+		item.setChildrenIds(new String[] { "child" });
+		item.getEventsStatus().put("event", BaseStatus.MAJOR);
+		item.setStatus(BaseStatus.MAJOR);
+		item.setStatusVersion(3);
+		return item;
+	}
+
+	private static long countFiles(Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return 0;
+		}
+		try (var files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+	private void restart(long compactBytes, String suffix) throws IOException {
+		var hazelcastInstance = start(compactBytes);
+		try {
+			var map = hazelcastInstance.<String, Item>getMap(ItemService.NAME_ITEMS_MAP);
+			map.set("a", item("a", "first"));
+			map.set("b", item("b", "first"));
+			map.set("c", item("c", "first"));
+			map.delete("b");
+			map.set("a", item("a", "second"));
+		} finally {
+			hazelcastInstance.shutdown();
+		}
+		try (var files = Files.list(directory.resolve(ItemService.NAME_ITEMS_MAP))) {
+			assertTrue(files.allMatch(file -> file.toString().endsWith(suffix)));
+		}
+		hazelcastInstance = start(compactBytes);
+		try {
+			var map = hazelcastInstance.<String, Item>getMap(ItemService.NAME_ITEMS_MAP);
+			assertEquals(2, map.size());
+			assertFalse(map.containsKey("b"));
+			var a = map.get("a");
+			assertEquals("second", a.getName());
+			assertEquals(BaseStatus.MAJOR, a.getStatus());
+			assertEquals(BaseStatus.MAJOR, a.getEventsStatus().getMaxStatus());
+			assertEquals(3, a.getStatusVersion());
+			assertEquals("first", map.get("c").getName());
+			assertTrue(FileMapStore.lastStoredAt(hazelcastInstance, ItemService.NAME_ITEMS_MAP).isPresent());
+			FileMapStore.release(hazelcastInstance, ItemService.NAME_ITEMS_MAP);
+			map.set("d", item("d", "first"));
+			assertEquals("first", map.get("d").getName());
+		} finally {
+			hazelcastInstance.shutdown();
+		}
+	}
+
+	@Test
+	public void restoreFromLog() throws IOException {
+		restart(Long.MAX_VALUE, FileMapStore.LOG_SUFFIX);
+	}
+
+	@Test
+	public void restoreFromSnapshot() throws IOException {
+		restart(1, FileMapStore.SNAPSHOT_SUFFIX);
+	}
+
+	/*
+	 * Tombstones are dropped at once. The keys deleted after their
+	 * partitions migrated must not come back from the files the old
+	 * owner wrote before.
+	 */
+	@Test
+	public void migratedPartitionIsPruned() throws IOException, InterruptedException {
+		var mapNames = List.of(ItemService.NAME_ITEMS_MAP);
+		var first = directory.resolve("first");
+		var second = directory.resolve("second");
+		Supplier<HazelcastInstance> startFirst = () -> start(first, 1, 0, true, mapNames);
+		Supplier<HazelcastInstance> startSecond = () -> start(second, 1, 0, true, mapNames);
+
+		var member1 = startFirst.get();
+		var member2 = startSecond.get();
+		var map = member1.<String, Item>getMap(ItemService.NAME_ITEMS_MAP);
+		for (int i = 0; i < 20; i++) {
+			map.set("k" + i, item("k" + i, "first"));
+		}
+		Thread.sleep(2000);
+		assertTrue(countFiles(second.resolve(ItemService.NAME_ITEMS_MAP)) > 0);
+		member2.shutdown();
+		assertEquals(0, countFiles(second.resolve(ItemService.NAME_ITEMS_MAP)));
+		for (int i = 0; i < 20; i++) {
+			map.delete("k" + i);
+		}
+		member1.shutdown();
+
+		member1 = startFirst.get();
+		member2 = startSecond.get();
+		try {
+			assertEquals(0, member1.getMap(ItemService.NAME_ITEMS_MAP).size());
+			FileMapStore.release(member1, ItemService.NAME_ITEMS_MAP);
+		} finally {
+			member2.shutdown();
+			member1.shutdown();
+		}
+
+		member1 = startFirst.get();
+		member2 = startSecond.get();
+		try {
+			assertEquals(0, member1.getMap(ItemService.NAME_ITEMS_MAP).size());
+		} finally {
+			member2.shutdown();
+			member1.shutdown();
+		}
+	}
+
+	private static void waitForStatus(ItemService itemService, String itemId, BaseStatus status)
+			throws InterruptedException {
+		for (int i = 0; i < 100 && itemService.findById(itemId).getStatus() != status; i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(status, itemService.findById(itemId).getStatus());
+	}
+
+	private static ItemService itemService(HazelcastInstance hazelcastInstance, EventService eventService) {
+		var properties = new ItemProperties();
+		properties.setQueueThreadNumber(1);
+		properties.setReadThreadNumber(2);
+		return new ItemService(hazelcastInstance, eventService, properties, false, UpsertMode.PROCESSOR, true,
+				60000L, 60L);
+	}
+
+	/*
+	 * The parents index and the filter index are not stored, the
+	 * recovery rebuilds them and the statuses keep propagating.
+	 */
+	@Test
+	public void storeRecovery() throws InterruptedException {
+		var mapNames = List.of(ItemService.NAME_ITEMS_MAP, EventService.NAME_EVENTS_MAP);
+		var hazelcastInstance = start(directory, Long.MAX_VALUE, Long.MAX_VALUE, false, mapNames);
+		try {
+			var eventService = new EventService(hazelcastInstance, UpsertMode.PROCESSOR, true, 60000L, 60L);
+			var itemService = itemService(hazelcastInstance, eventService);
+			var filter = new ItemFilter();
+			filter.setEqualFields(Map.of("recovery", "storeRecovery"));
+			var child = new Item("id_recoveryChild", "src_recovery", "src_key_recovery");
+			child.setFilters(Map.of("by_recovery", filter));
+			var parent = new Item("id_recoveryParent", "src_recovery", "src_key_recovery");
+			parent.setChildrenIds(new String[] { child.getId() });
+			itemService.addOrUpdate(List.of(child, parent));
+			var event = new Event("id_recoveryEvent", "src_recovery", "src_key_recovery", EventType.PROBLEM,
+					BaseStatus.MAJOR);
+			event.setFields(Map.of("recovery", "storeRecovery"));
+			eventService.addOrUpdate(List.of(event));
+			waitForStatus(itemService, parent.getId(), BaseStatus.MAJOR);
+		} finally {
+			hazelcastInstance.shutdown();
+		}
+
+		hazelcastInstance = start(directory, Long.MAX_VALUE, Long.MAX_VALUE, false, mapNames);
+		try {
+			var eventService = new EventService(hazelcastInstance, UpsertMode.PROCESSOR, true, 60000L, 60L);
+			var itemService = itemService(hazelcastInstance, eventService);
+			assertEquals(BaseStatus.MAJOR, itemService.findById("id_recoveryParent").getStatus());
+			new StoreRecovery(hazelcastInstance, itemService, 60L).recover();
+			assertEquals(List.of("id_recoveryParent"), itemService.findParentIdsById("id_recoveryChild"));
+
+			var event = new Event("id_recoveryEvent", "src_recovery", "src_key_recovery", EventType.PROBLEM,
+					BaseStatus.CRITICAL);
+			event.setFields(Map.of("recovery", "storeRecovery"));
+			eventService.addOrUpdate(List.of(event));
+			waitForStatus(itemService, "id_recoveryParent", BaseStatus.CRITICAL);
+			eventService.deleteById(event.getId());
+			waitForStatus(itemService, "id_recoveryParent", BaseStatus.CLEAR);
+		} finally {
+			hazelcastInstance.shutdown();
+		}
+	}
+
+	/*
+	 * A member that leaves with the claim of the recovery must not
+	 * keep it, the member left recovers instead.
+	 */
+	@Test
+	public void recoveryClaimReleased() throws InterruptedException {
+		var mapNames = List.of(ItemService.NAME_ITEMS_MAP, EventService.NAME_EVENTS_MAP);
+		var member1 = start(directory.resolve("first"), Long.MAX_VALUE, Long.MAX_VALUE, true, mapNames);
+		var member2 = start(directory.resolve("second"), Long.MAX_VALUE, Long.MAX_VALUE, true, mapNames);
+		try {
+			var eventService = new EventService(member1, UpsertMode.PROCESSOR, true, 60000L, 60L);
+			var itemService = itemService(member1, eventService);
+			var recovery = member1.<String, String>getMap(StoreRecovery.NAME_RECOVERY_MAP);
+			recovery.put(StoreRecovery.KEY_CLAIM, member2.getCluster().getLocalMember().getUuid().toString());
+			new StoreRecovery(member1, itemService, 60L).recover();
+			assertFalse(recovery.containsKey(StoreRecovery.KEY_RECOVERED));
+
+			member2.shutdown();
+			var memberId = member1.getCluster().getLocalMember().getUuid().toString();
+			for (int i = 0; i < 100 && !recovery.containsKey(StoreRecovery.KEY_RECOVERED); i++) {
+				Thread.sleep(100);
+			}
+			assertEquals(memberId, recovery.get(StoreRecovery.KEY_CLAIM));
+			assertEquals(memberId, recovery.get(StoreRecovery.KEY_RECOVERED));
+		} finally {
+			member2.shutdown();
+			member1.shutdown();
+		}
+	}
+
+}